@@ -0,0 +1,61 @@
+package com.livefyre.adapter;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.livefyre.dto.Envelope;
+import com.livefyre.dto.Subscription;
+import com.livefyre.dto.Topic;
+
+/**
+ * Writes request Envelopes of topics, ids or subscriptions. Envelopes are only ever sent, so only
+ * writing is taken over; reading is left to the adapter Gson would use without this factory.
+ */
+public class EnvelopeTypeAdapterFactory implements TypeAdapterFactory {
+    private final TopicTypeAdapter topicAdapter = new TopicTypeAdapter();
+    private final SubscriptionTypeAdapter subscriptionAdapter = new SubscriptionTypeAdapter();
+
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!Envelope.class.isAssignableFrom(type.getRawType())) {
+            return null;
+        }
+        final TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        return (TypeAdapter<T>) new TypeAdapter<Envelope<?>>() {
+            @Override
+            public void write(JsonWriter out, Envelope<?> envelope) throws IOException {
+                writeEnvelope(out, envelope);
+            }
+
+            @Override
+            public Envelope<?> read(JsonReader in) throws IOException {
+                return (Envelope<?>) delegate.read(in);
+            }
+        };
+    }
+
+    private void writeEnvelope(JsonWriter out, Envelope<?> envelope) throws IOException {
+        if (envelope == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name(envelope.getName()).beginArray();
+        for (Object item : envelope.getItems()) {
+            if (item instanceof Topic) {
+                topicAdapter.write(out, (Topic) item);
+            } else if (item instanceof Subscription) {
+                subscriptionAdapter.write(out, (Subscription) item);
+            } else {
+                out.value((String) item);
+            }
+        }
+        out.endArray();
+        out.endObject();
+    }
+}
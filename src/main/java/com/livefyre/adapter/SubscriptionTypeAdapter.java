@@ -0,0 +1,46 @@
+package com.livefyre.adapter;
+
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.livefyre.dto.Subscription;
+
+/**
+ * Streams Subscriptions to and from JSON without reflection. Writes the same JSON as Gson's
+ * reflective adapter did: fields in declaration order, null fields left out.
+ */
+public class SubscriptionTypeAdapter extends TypeAdapter<Subscription> {
+    @Override
+    public void write(JsonWriter out, Subscription subscription) throws IOException {
+        if (subscription == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (subscription.getTo() != null) {
+            out.name("to").value(subscription.getTo());
+        }
+        if (subscription.getBy() != null) {
+            out.name("by").value(subscription.getBy());
+        }
+        if (subscription.getType() != null) {
+            out.name("type").value(subscription.getType());
+        }
+        if (subscription.getCreatedAt() != null) {
+            out.name("createdAt").value(subscription.getCreatedAt());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Subscription read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return Subscription.serializeFromJson(in);
+    }
+}
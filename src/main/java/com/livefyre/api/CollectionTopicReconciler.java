@@ -0,0 +1,125 @@
+package com.livefyre.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.livefyre.core.Collection;
+import com.livefyre.dto.ReconcileResult;
+import com.livefyre.dto.Topic;
+import com.livefyre.exceptions.LivefyreException;
+
+/**
+ * Mirrors the topics that many collections should have into Livefyre. For each collection the
+ * current topics are fetched and compared with the desired ones; collections that already match are
+ * left alone, and the rest only get the difference: an add for the missing topics and a remove for
+ * the extra ones. When topics are both added and removed and the difference is at least as large as
+ * the desired set, a single replace with the full set is sent instead.
+ *
+ * Collections are reconciled concurrently on their network's Transport, at most maxConcurrency at a time.
+ */
+public class CollectionTopicReconciler {
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+    private final int maxConcurrency;
+
+    public CollectionTopicReconciler() {
+        this(DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * @param maxConcurrency the max number of collections being reconciled at a time.
+     */
+    public CollectionTopicReconciler(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be at least 1.");
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Reconciles every collection and returns once all of them are done. A collection that fails does
+     * not stop the others.
+     *
+     * @param desired the topics each collection should have. Collections must already have ids.
+     * @return ReconcileResult
+     */
+    public ReconcileResult reconcile(Map<Collection, List<Topic>> desired) {
+        InFlightWindow window = new InFlightWindow(maxConcurrency);
+        Map<Collection, ListenableFuture<int[]>> futures = Maps.newLinkedHashMap();
+        try {
+            for (final Map.Entry<Collection, List<Topic>> entry : desired.entrySet()) {
+                futures.put(entry.getKey(), window.submit(entry.getKey().getSite().getNetwork().getTransport(), new Callable<int[]>() {
+                    public int[] call() {
+                        return reconcile(entry.getKey(), entry.getValue());
+                    }
+                }));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LivefyreException("Interrupted while reconciling. Collections already started may still change.", e);
+        }
+
+        int inSync = 0;
+        int updated = 0;
+        int added = 0;
+        int removed = 0;
+        Map<Collection, Throwable> failures = Maps.newLinkedHashMap();
+        for (Map.Entry<Collection, ListenableFuture<int[]>> entry : futures.entrySet()) {
+            try {
+                int[] counts = Uninterruptibles.getUninterruptibly(entry.getValue());
+                if (counts == null) {
+                    inSync++;
+                } else {
+                    updated++;
+                    added += counts[0];
+                    removed += counts[1];
+                }
+            } catch (ExecutionException e) {
+                failures.put(entry.getKey(), e.getCause());
+            }
+        }
+        return new ReconcileResult(inSync, updated, added, removed, failures);
+    }
+
+    /* Returns the number of topics added and removed, or null if the collection was already in sync. */
+    private int[] reconcile(Collection collection, List<Topic> topics) {
+        Set<String> current = Sets.newHashSet(PersonalizedStream.getCollectionTopics(collection));
+        Set<String> wanted = Sets.newLinkedHashSet();
+        for (Topic topic : topics) {
+            wanted.add(topic.getId());
+        }
+
+        List<Topic> toAdd = Lists.newArrayList();
+        for (String id : Sets.difference(wanted, current)) {
+            toAdd.add(new Topic(id, null, null, null));
+        }
+        List<Topic> toRemove = Lists.newArrayList();
+        for (String id : Sets.difference(current, wanted)) {
+            toRemove.add(new Topic(id, null, null, null));
+        }
+
+        if (toAdd.isEmpty() && toRemove.isEmpty()) {
+            return null;
+        }
+        // a replace saves a call only when topics are both added and removed.
+        if (!toAdd.isEmpty() && !toRemove.isEmpty() && toAdd.size() + toRemove.size() >= wanted.size()) {
+            List<Topic> all = Lists.newArrayList();
+            for (String id : wanted) {
+                all.add(new Topic(id, null, null, null));
+            }
+            Map<String, Integer> counts = PersonalizedStream.replaceCollectionTopics(collection, all);
+            return new int[] { counts.get("added"), counts.get("removed") };
+        }
+        return new int[] {
+            toAdd.isEmpty() ? 0 : PersonalizedStream.addCollectionTopics(collection, toAdd),
+            toRemove.isEmpty() ? 0 : PersonalizedStream.removeCollectionTopics(collection, toRemove) };
+    }
+}
@@ -0,0 +1,99 @@
+package com.livefyre.api;
+
+import java.net.URI;
+
+/**
+ * The base urls of a network's API hosts, resolved once from the network's name and ssl setting.
+ * Use Network.getEndpoints() rather than creating them directly; each network keeps its own and only
+ * resolves them again when its data, ssl setting or base url overrides change.
+ *
+ * The quill and bootstrap base urls can be overridden, e.g. to send all calls to a local server.
+ */
+public final class Endpoints {
+    private static final String API_V4 = "/api/v4";
+
+    private final String name;
+    private final String networkName;
+    private final String quill;
+    private final String bootstrap;
+    private final URI personalizedStream;
+    private final URI stream;
+    private final String collectionApi;
+    private final String collectionContent;
+
+    /**
+     * @param name the network's full name, e.g. test.fyre.co.
+     * @param ssl whether to use the https hosts.
+     * @param quillOverride the quill base url to use instead of the network's, or null.
+     * @param bootstrapOverride the bootstrap base url to use instead of the network's, or null.
+     */
+    public Endpoints(String name, boolean ssl, String quillOverride, String bootstrapOverride) {
+        this.name = name;
+        int dot = name.indexOf('.');
+        this.networkName = dot < 0 ? name : name.substring(0, dot);
+        this.quill = quillOverride != null ? stripSlash(quillOverride) : ssl
+                ? "https://" + networkName + ".quill.fyre.co" : "http://quill." + networkName + ".fyre.co";
+        this.bootstrap = bootstrapOverride != null ? stripSlash(bootstrapOverride) : ssl
+                ? "https://" + networkName + ".bootstrap.fyre.co" : "http://bootstrap." + networkName + ".fyre.co";
+        this.personalizedStream = URI.create(quill + API_V4);
+        this.stream = URI.create(bootstrap + API_V4);
+        this.collectionApi = quill + "/api/v3.0/site/";
+        this.collectionContent = bootstrap + "/bs3/" + networkName + ".fyre.co/";
+    }
+
+    /**
+     * @return the network's full name these endpoints were resolved for, e.g. test.fyre.co.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the first part of the network's name, e.g. test for test.fyre.co.
+     */
+    public String getNetworkName() {
+        return networkName;
+    }
+
+    public String getQuill() {
+        return quill;
+    }
+
+    public String getBootstrap() {
+        return bootstrap;
+    }
+
+    /**
+     * @return the base of the personalized stream API on the quill host.
+     */
+    public URI getPersonalizedStream() {
+        return personalizedStream;
+    }
+
+    /**
+     * @return the base of the stream API on the bootstrap host.
+     */
+    public URI getStream() {
+        return stream;
+    }
+
+    public String userSync() {
+        return quill + "/";
+    }
+
+    public String userRefresh(String userId) {
+        return quill + "/api/v3_0/user/" + userId + "/refresh";
+    }
+
+    public String collectionApi(String siteId, String method) {
+        return collectionApi + siteId + "/collection/" + method + "/";
+    }
+
+    public String collectionContent(String siteId, String encodedArticleId) {
+        return collectionContent + siteId + "/" + encodedArticleId + "/init";
+    }
+
+    private static String stripSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,41 @@
+package com.livefyre.api;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/*
+ * Caps the number of calls running at a time across any number of Transports. Every call submitted
+ * gets a future, so a caller that waits on all of them never loses one.
+ */
+class InFlightWindow {
+    private final Semaphore permits;
+
+    InFlightWindow(int maxInFlight) {
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /*
+     * Waits for a slot, then runs the call on the Transport's executor. A call the executor rejects gets
+     * a failed future and gives its slot back.
+     */
+    <T> ListenableFuture<T> submit(Transport transport, final Callable<T> task) throws InterruptedException {
+        permits.acquire();
+        try {
+            return transport.submit(new Callable<T>() {
+                public T call() throws Exception {
+                    try {
+                        return task.call();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+}
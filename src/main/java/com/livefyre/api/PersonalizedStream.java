@@ -1,45 +1,68 @@
 package com.livefyre.api;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.ws.rs.core.MediaType;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.livefyre.api.filter.LftokenAuthFilter;
 import com.livefyre.core.Collection;
 import com.livefyre.core.LfCore;
 import com.livefyre.core.Network;
+import com.livefyre.cursor.OffsetCursor;
 import com.livefyre.cursor.TimelineCursor;
+import com.livefyre.dto.BatchResult;
+import com.livefyre.dto.ChunkResult;
+import com.livefyre.dto.Envelope;
 import com.livefyre.dto.Subscription;
+import com.livefyre.dto.TimelinePage;
 import com.livefyre.dto.Topic;
 import com.livefyre.exceptions.ApiException;
+import com.livefyre.exceptions.LivefyreException;
+import com.livefyre.exceptions.TokenException;
+import com.livefyre.factory.GsonFactory;
+import com.livefyre.journal.Mutation;
+import com.livefyre.journal.MutationJournal;
 import com.livefyre.type.SubscriptionType;
+import com.livefyre.utils.JwtVerifier;
 import com.livefyre.utils.LivefyreUtil;
-import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
-import com.sun.jersey.api.client.config.ClientConfig;
-import com.sun.jersey.client.urlconnection.URLConnectionClientHandler;
 
 public class PersonalizedStream {
 
-    private static final String BASE_URL = "%s/api/v4";
-    private static final String STREAM_BASE_URL = "%s/api/v4";
-    
     private static final String TOPIC_PATH = "/%s/";
     private static final String MULTIPLE_TOPIC_PATH = "/%s:topics/";
     private static final String USER_SUBSCRIPTION_PATH = "/%s:subscriptions/";
     private static final String TOPIC_SUBSCRIPTION_PATH = "/%s:subscribers/";
     private static final String TIMELINE_PATH = "/timeline/";
     
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+    
     private static final String PATCH_METHOD = "PATCH";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
     
     /* Topic API */
     public static Topic getTopic(LfCore core, String topicId) {
@@ -69,57 +92,124 @@ public class PersonalizedStream {
                 .queryParam("offset", offset == null ? "0" : offset.toString())
                 .accept(MediaType.APPLICATION_JSON)
                 .get(ClientResponse.class);
-        JsonObject content = evaluateResponse(response);
-        JsonArray topicsData = content.getAsJsonObject("data").getAsJsonArray("topics");
-        
-        List<Topic> topics = Lists.newArrayList();
-        if (topicsData != null) {
-            for (int i = 0; i < topicsData.size(); i++) {
-                topics.add(Topic.serializeFromJson(topicsData.get(i).getAsJsonObject()));
+        return evaluateTopics(response);
+    }
+    
+    /**
+     * Lazily pages through all of the topics for the core, DEFAULT_PAGE_SIZE at a time.
+     * 
+     * @see OffsetCursor
+     */
+    public static Iterable<Topic> iterateTopics(LfCore core) {
+        return iterateTopics(core, OffsetCursor.DEFAULT_PAGE_SIZE, OffsetCursor.DEFAULT_PREFETCH);
+    }
+    
+    /**
+     * Lazily pages through all of the topics for the core, fetching up to prefetch pages ahead in the
+     * background.
+     * 
+     * @see OffsetCursor
+     */
+    public static Iterable<Topic> iterateTopics(final LfCore core, int pageSize, int prefetch) {
+        return new OffsetCursor<Topic>(transport(core).getExecutor(), pageSize, prefetch) {
+            @Override
+            protected List<Topic> fetchPage(int limit, int offset) {
+                return getTopics(core, limit, offset);
             }
-        }
-        return topics;
+        };
     }
     
     public static List<Topic> createOrUpdateTopics(LfCore core, Map<String, String> topicMap) {
         List<Topic> topics = Lists.newArrayList();
         for (String k : topicMap.keySet()) {
             String label = topicMap.get(k);
-            
-            if (StringUtils.isEmpty(label) || label.length() > 128) {
-                throw new IllegalArgumentException("Topic label is of incorrect length or empty.");
-            }
-            
+            checkLabel(label);
             topics.add(Topic.create(core, k, label));
         }
-        String form = LivefyreUtil.mapToJsonString(ImmutableMap.<String, Object>of("topics", topics));
+        String form = GsonFactory.getGson().toJson(Envelope.ofTopics("topics", topics));
         
-        ClientResponse response = builder(core)
-                .path(String.format(MULTIPLE_TOPIC_PATH, core.getUrn()))
-                .accept(MediaType.APPLICATION_JSON)
-                .type(MediaType.APPLICATION_JSON)
-                .post(ClientResponse.class, form);
-        evaluateResponse(response);
+        mutate(core, new Mutation("POST", String.format(MULTIPLE_TOPIC_PATH, core.getUrn()), false, form, null));
         
         // Doesn't matter what the response details are here as long as it's a 200.
         return topics;
     }
     
     public static int deleteTopics(LfCore core, List<Topic> topics) {
-        String form = LivefyreUtil.mapToJsonString(ImmutableMap.<String, Object>of("delete", getTopicIds(topics)));
+        String form = GsonFactory.getGson().toJson(Envelope.ofIds("delete", getTopicIds(topics)));
         
-        ClientResponse response = builder(core)
-                .path(String.format(MULTIPLE_TOPIC_PATH, core.getUrn()))
-                .queryParam("_method", PATCH_METHOD)
-                .accept(MediaType.APPLICATION_JSON)
-                .type(MediaType.APPLICATION_JSON)
-                .post(ClientResponse.class, form);
-        JsonObject content = evaluateResponse(response);
+        JsonObject content = mutate(core, new Mutation("POST", String.format(MULTIPLE_TOPIC_PATH, core.getUrn()), true, form, null));
         JsonObject data = content.getAsJsonObject("data");
         
         return data.has("deleted") ? data.get("deleted").getAsInt() : 0;
     }
     
+    /**
+     * Creates or updates any number of topics, DEFAULT_CHUNK_SIZE topics per call and with up to
+     * DEFAULT_MAX_IN_FLIGHT calls at a time.
+     * 
+     * @see #createOrUpdateTopicBatch(LfCore, Map, int, int)
+     */
+    public static BatchResult<List<Topic>> createOrUpdateTopicBatch(LfCore core, Map<String, String> topicMap) {
+        return createOrUpdateTopicBatch(core, topicMap, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Creates or updates any number of topics, split into calls of chunkSize topics that are sent
+     * concurrently, at most maxInFlight at a time. Each chunk succeeds or fails on its own. Returns
+     * once every chunk has been answered.
+     * 
+     * @param core the network, site or collection the topics belong to.
+     * @param topicMap topic ids to labels.
+     * @param chunkSize the max number of topics per call.
+     * @param maxInFlight the max number of calls in flight at a time.
+     * @return BatchResult with the topics of each chunk.
+     */
+    public static BatchResult<List<Topic>> createOrUpdateTopicBatch(final LfCore core, final Map<String, String> topicMap,
+            int chunkSize, int maxInFlight) {
+        for (String label : topicMap.values()) {
+            checkLabel(label);
+        }
+        List<String> ids = Lists.newArrayList(topicMap.keySet());
+        return sendInChunks(core, ids, ids, chunkSize, maxInFlight, new Function<List<String>, List<Topic>>() {
+            public List<Topic> apply(List<String> chunk) {
+                Map<String, String> chunkMap = Maps.newLinkedHashMap();
+                for (String id : chunk) {
+                    chunkMap.put(id, topicMap.get(id));
+                }
+                return createOrUpdateTopics(core, chunkMap);
+            }
+        });
+    }
+
+    /**
+     * Deletes any number of topics, DEFAULT_CHUNK_SIZE topics per call and with up to
+     * DEFAULT_MAX_IN_FLIGHT calls at a time.
+     * 
+     * @see #deleteTopicBatch(LfCore, List, int, int)
+     */
+    public static BatchResult<Integer> deleteTopicBatch(LfCore core, List<Topic> topics) {
+        return deleteTopicBatch(core, topics, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Deletes any number of topics, split into calls of chunkSize topics that are sent concurrently,
+     * at most maxInFlight at a time. Each chunk succeeds or fails on its own. Returns once every chunk
+     * has been answered.
+     * 
+     * @param core the network, site or collection the topics belong to.
+     * @param topics the topics to delete.
+     * @param chunkSize the max number of topics per call.
+     * @param maxInFlight the max number of calls in flight at a time.
+     * @return BatchResult with the number of topics each chunk deleted.
+     */
+    public static BatchResult<Integer> deleteTopicBatch(final LfCore core, List<Topic> topics, int chunkSize, int maxInFlight) {
+        return sendInChunks(core, topics, getTopicIds(topics), chunkSize, maxInFlight, new Function<List<Topic>, Integer>() {
+            public Integer apply(List<Topic> chunk) {
+                return deleteTopics(core, chunk);
+            }
+        });
+    }
+    
     /* Collection Topic API */
     public static List<String> getCollectionTopics(Collection collection) {
         ClientResponse response = builder(collection)
@@ -139,28 +229,18 @@ public class PersonalizedStream {
     }
     
     public static int addCollectionTopics(Collection collection, List<Topic> topics) {
-        String form = LivefyreUtil.mapToJsonString(ImmutableMap.<String, Object>of("topicIds", getTopicIds(topics)));
+        String form = GsonFactory.getGson().toJson(Envelope.ofIds("topicIds", getTopicIds(topics)));
         
-        ClientResponse response = builder(collection)
-                .path(String.format(MULTIPLE_TOPIC_PATH, collection.getUrn()))
-                .accept(MediaType.APPLICATION_JSON)
-                .type(MediaType.APPLICATION_JSON)
-                .post(ClientResponse.class, form);
-        JsonObject content = evaluateResponse(response);
+        JsonObject content = mutate(collection, new Mutation("POST", String.format(MULTIPLE_TOPIC_PATH, collection.getUrn()), false, form, null));
         JsonObject data = content.getAsJsonObject("data");
     
         return data.has("added") ? data.get("added").getAsInt() : 0;
     }
     
     public static Map<String, Integer> replaceCollectionTopics(Collection collection, List<Topic> topics) {
-        String form = LivefyreUtil.mapToJsonString(ImmutableMap.<String, Object>of("topicIds", getTopicIds(topics)));
+        String form = GsonFactory.getGson().toJson(Envelope.ofIds("topicIds", getTopicIds(topics)));
 
-        ClientResponse response = builder(collection)
-                .path(String.format(MULTIPLE_TOPIC_PATH, collection.getUrn()))
-                .accept(MediaType.APPLICATION_JSON)
-                .type(MediaType.APPLICATION_JSON)
-                .put(ClientResponse.class, form);
-        JsonObject content = evaluateResponse(response);
+        JsonObject content = mutate(collection, new Mutation("PUT", String.format(MULTIPLE_TOPIC_PATH, collection.getUrn()), false, form, null));
         JsonObject data = content.getAsJsonObject("data");
         
         Map<String, Integer> results = Maps.newHashMap();
@@ -170,15 +250,9 @@ public class PersonalizedStream {
     }
     
     public static int removeCollectionTopics(Collection collection, List<Topic> topics) {
-        String form = LivefyreUtil.mapToJsonString(ImmutableMap.<String, Object>of("delete", getTopicIds(topics)));
+        String form = GsonFactory.getGson().toJson(Envelope.ofIds("delete", getTopicIds(topics)));
         
-        ClientResponse response = builder(collection)
-                .path(String.format(MULTIPLE_TOPIC_PATH, collection.getUrn()))
-                .queryParam("_method", PATCH_METHOD)
-                .accept(MediaType.APPLICATION_JSON)
-                .type(MediaType.APPLICATION_JSON)
-                .post(ClientResponse.class, form);
-        JsonObject content = evaluateResponse(response);
+        JsonObject content = mutate(collection, new Mutation("POST", String.format(MULTIPLE_TOPIC_PATH, collection.getUrn()), true, form, null));
         JsonObject data = content.getAsJsonObject("data");
 
         return data.has("removed") ? data.get("removed").getAsInt() : 0;
@@ -190,29 +264,15 @@ public class PersonalizedStream {
                 .path(String.format(USER_SUBSCRIPTION_PATH, network.getUrnForUser(userId)))
                 .accept(MediaType.APPLICATION_JSON)
                 .get(ClientResponse.class);
-        JsonObject content = evaluateResponse(response);
-        JsonArray subscriptionData = content.getAsJsonObject("data").getAsJsonArray("subscriptions");
-        
-        List<Subscription> subscriptions = Lists.newArrayList();
-        if (subscriptionData != null) {
-            for (int i = 0; i < subscriptionData.size(); i++) {
-                subscriptions.add(Subscription.serializeFromJson(subscriptionData.get(i).getAsJsonObject()));
-            }
-        }
-        return subscriptions;
+        return evaluateSubscriptions(response);
     }
     
     public static int addSubscriptions(Network network, String userToken, List<Topic> topics) {
         String userId = getUserFromToken(network, userToken);
         String userUrn = network.getUrnForUser(userId);
-        String form = LivefyreUtil.mapToJsonString(ImmutableMap.<String, Object>of("subscriptions", buildSubscriptions(topics, userUrn)));
+        String form = GsonFactory.getGson().toJson(Envelope.ofSubscriptions("subscriptions", buildSubscriptions(topics, userUrn)));
 
-        ClientResponse response = builder(network, userToken)
-                .path(String.format(USER_SUBSCRIPTION_PATH, userUrn))
-                .accept(MediaType.APPLICATION_JSON)
-                .type(MediaType.APPLICATION_JSON)
-                .post(ClientResponse.class, form);
-        JsonObject content = evaluateResponse(response);
+        JsonObject content = mutate(network, new Mutation("POST", String.format(USER_SUBSCRIPTION_PATH, userUrn), false, form, userToken));
         JsonObject data = content.getAsJsonObject("data");
 
         return data.has("added") ? data.get("added").getAsInt() : 0;
@@ -221,14 +281,9 @@ public class PersonalizedStream {
     public static Map<String, Integer> replaceSubscriptions(Network network, String userToken, List<Topic> topics) {
         String userId = getUserFromToken(network, userToken);
         String userUrn = network.getUrnForUser(userId);
-        String form = LivefyreUtil.mapToJsonString(ImmutableMap.<String, Object>of("subscriptions", buildSubscriptions(topics, userUrn)));
+        String form = GsonFactory.getGson().toJson(Envelope.ofSubscriptions("subscriptions", buildSubscriptions(topics, userUrn)));
 
-        ClientResponse response = builder(network, userToken)
-                .path(String.format(USER_SUBSCRIPTION_PATH, userUrn))
-                .accept(MediaType.APPLICATION_JSON)
-                .type(MediaType.APPLICATION_JSON)
-                .put(ClientResponse.class, form);
-        JsonObject content = evaluateResponse(response);
+        JsonObject content = mutate(network, new Mutation("PUT", String.format(USER_SUBSCRIPTION_PATH, userUrn), false, form, userToken));
         JsonObject data = content.getAsJsonObject("data");
         
         Map<String, Integer> results = Maps.newHashMap();
@@ -237,18 +292,63 @@ public class PersonalizedStream {
         return results;
     }
 
+    /**
+     * Gives the user exactly the subscriptions to topics, like replaceSubscriptions(), but only sends
+     * what changed. The user's current subscriptions are fetched first.
+     * 
+     * @see #replaceSubscriptionsByDelta(Network, String, List, List)
+     */
+    public static Map<String, Integer> replaceSubscriptionsByDelta(Network network, String userToken, List<Topic> topics) {
+        return replaceSubscriptionsByDelta(network, userToken, topics,
+                getSubscriptions(network, getUserFromToken(network, userToken)));
+    }
+
+    /**
+     * Gives the user exactly the subscriptions to topics, like replaceSubscriptions(), but diffs them
+     * against the user's current subscriptions and only adds and removes the difference. Nothing is
+     * sent if there is no difference. When the difference is at least as large as the new set, the
+     * full set is sent with replaceSubscriptions() instead.
+     * 
+     * @param network the user's network.
+     * @param userToken the user's token.
+     * @param topics the topics the user should be subscribed to.
+     * @param current the user's current subscriptions, e.g. from an earlier getSubscriptions() call.
+     * @return the number of subscriptions added and removed.
+     */
+    public static Map<String, Integer> replaceSubscriptionsByDelta(Network network, String userToken, List<Topic> topics,
+            List<Subscription> current) {
+        Set<String> currentIds = Sets.newHashSet();
+        for (Subscription subscription : current) {
+            currentIds.add(subscription.getTo());
+        }
+        Set<String> wantedIds = Sets.newLinkedHashSet(getTopicIds(topics));
+
+        List<Topic> toAdd = Lists.newArrayList();
+        for (Topic topic : topics) {
+            if (!currentIds.contains(topic.getId())) {
+                toAdd.add(topic);
+            }
+        }
+        List<Topic> toRemove = Lists.newArrayList();
+        for (String id : Sets.difference(currentIds, wantedIds)) {
+            toRemove.add(new Topic(id, null, null, null));
+        }
+
+        if (toAdd.size() + toRemove.size() >= wantedIds.size() && !wantedIds.isEmpty()) {
+            return replaceSubscriptions(network, userToken, topics);
+        }
+        Map<String, Integer> results = Maps.newHashMap();
+        results.put("added", toAdd.isEmpty() ? 0 : addSubscriptions(network, userToken, toAdd));
+        results.put("removed", toRemove.isEmpty() ? 0 : removeSubscriptions(network, userToken, toRemove));
+        return results;
+    }
+
     public static int removeSubscriptions(Network network, String userToken, List<Topic> topics) {
         String userId = getUserFromToken(network, userToken);
         String userUrn = network.getUrnForUser(userId);
-        String form = LivefyreUtil.mapToJsonString(ImmutableMap.<String, Object>of("delete", buildSubscriptions(topics, userUrn)));
+        String form = GsonFactory.getGson().toJson(Envelope.ofSubscriptions("delete", buildSubscriptions(topics, userUrn)));
 
-        ClientResponse response = builder(network, userToken)
-                .path(String.format(USER_SUBSCRIPTION_PATH, userUrn))
-                .queryParam("_method", PATCH_METHOD)
-                .accept(MediaType.APPLICATION_JSON)
-                .type(MediaType.APPLICATION_JSON)
-                .post(ClientResponse.class, form);
-        JsonObject content = evaluateResponse(response);
+        JsonObject content = mutate(network, new Mutation("POST", String.format(USER_SUBSCRIPTION_PATH, userUrn), true, form, userToken));
         JsonObject data = content.getAsJsonObject("data");
 
         return data.has("removed") ? data.get("removed").getAsInt() : 0;
@@ -261,20 +361,54 @@ public class PersonalizedStream {
                 .queryParam("offset", offset == null ? "0" : offset.toString())
                 .accept(MediaType.APPLICATION_JSON)
                 .get(ClientResponse.class);
-        JsonObject content = evaluateResponse(response);
-        JsonArray data = content.getAsJsonObject("data").getAsJsonArray("subscriptions");
-        
-        List<Subscription> subscriptions = Lists.newArrayList();
-        if (data != null) {
-            for (int i = 0; i < data.size(); i++) {
-                subscriptions.add(Subscription.serializeFromJson(data.get(i).getAsJsonObject()));
+        return evaluateSubscriptions(response);
+    }
+    
+    /**
+     * Lazily pages through all of the subscribers to the topic, DEFAULT_PAGE_SIZE at a time.
+     * 
+     * @see OffsetCursor
+     */
+    public static Iterable<Subscription> iterateSubscribers(Network network, Topic topic) {
+        return iterateSubscribers(network, topic, OffsetCursor.DEFAULT_PAGE_SIZE, OffsetCursor.DEFAULT_PREFETCH);
+    }
+    
+    /**
+     * Lazily pages through all of the subscribers to the topic, fetching up to prefetch pages ahead in
+     * the background.
+     * 
+     * @see OffsetCursor
+     */
+    public static Iterable<Subscription> iterateSubscribers(final Network network, final Topic topic, int pageSize, int prefetch) {
+        return new OffsetCursor<Subscription>(network.getTransport().getExecutor(), pageSize, prefetch) {
+            @Override
+            protected List<Subscription> fetchPage(int limit, int offset) {
+                return getSubscribers(network, topic, limit, offset);
             }
-        }
-        return subscriptions;
+        };
     }
     
     /* This call is used specifically by the TimelineCursor class. */
     public static JsonObject getTimelineStream(TimelineCursor cursor, boolean isNext) {
+        ClientResponse response = timelineRequest(cursor, isNext).get(ClientResponse.class);
+        return evaluateResponse(response);
+    }
+
+    /* Typed version of getTimelineStream(). The page is read straight from the response bytes. */
+    public static TimelinePage getTimelinePage(TimelineCursor cursor, boolean isNext) {
+        ClientResponse response = timelineRequest(cursor, isNext).get(ClientResponse.class);
+        if (response.getStatus() >= 400) {
+            response.close();
+            throw new ApiException(response.getStatus());
+        }
+        try {
+            return TimelinePage.parse(response.getEntity(byte[].class));
+        } catch (IllegalStateException e) {
+            throw new ApiException(e);
+        }
+    }
+
+    private static WebResource.Builder timelineRequest(TimelineCursor cursor, boolean isNext) {
         WebResource r = streamBuilder(cursor.getCore())
                 .path(TIMELINE_PATH)
                 .queryParam("limit", cursor.getData().getLimit().toString())
@@ -285,40 +419,214 @@ public class PersonalizedStream {
         } else {
             r = r.queryParam("until", cursor.getData().getCursorTime());
         }
-        
-        ClientResponse response = r.accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
-        return evaluateResponse(response);
+        return r.accept(MediaType.APPLICATION_JSON);
+    }
+    
+    /**
+     * Sends the calls recorded in the network's MutationJournal that were cut off, e.g. because the
+     * process died while making them, oldest first. Stops at the first call that cannot be sent or
+     * that Livefyre fails to answer with a server error; it and the calls after it stay in the journal,
+     * so that they are sent in order once replayed again.
+     * 
+     * @param network the network whose journal to replay.
+     * @return the number of calls Livefyre answered.
+     */
+    public static int replayMutations(Network network) {
+        MutationJournal journal = network.getMutationJournal();
+        if (journal == null) {
+            return 0;
+        }
+        int answered = 0;
+        for (Map.Entry<Long, Mutation> entry : journal.pending().entrySet()) {
+            ClientResponse response;
+            try {
+                response = send(network, entry.getValue());
+            } catch (ClientHandlerException e) {
+                break;
+            }
+            response.close();
+            if (response.getStatus() >= 500) {
+                break;
+            }
+            journal.acknowledge(entry.getKey());
+            answered++;
+        }
+        return answered;
     }
     
     /* Helper methods */
+
+    /*
+     * Mutating calls are recorded in the network's journal, if it has one, while they are in flight.
+     * Once the caller gets the outcome, including a failure, the call is acknowledged: the caller
+     * decides whether to retry, and only calls cut off by a crash are left to replay.
+     */
+    private static JsonObject mutate(LfCore core, Mutation mutation) {
+        MutationJournal journal = LivefyreUtil.getNetworkFromCore(core).getMutationJournal();
+        if (journal == null) {
+            return evaluateResponse(send(core, mutation));
+        }
+        long id = journal.record(mutation);
+        try {
+            return evaluateResponse(send(core, mutation));
+        } finally {
+            journal.acknowledge(id);
+        }
+    }
+
+    private static ClientResponse send(LfCore core, Mutation mutation) {
+        WebResource r = builder(core, mutation.getUserToken()).path(mutation.getPath());
+        if (mutation.isPatch()) {
+            r = r.queryParam("_method", PATCH_METHOD);
+        }
+        return r.accept(MediaType.APPLICATION_JSON)
+                .type(MediaType.APPLICATION_JSON)
+                .method(mutation.getMethod(), ClientResponse.class, mutation.getBody());
+    }
+
     private static WebResource builder(LfCore core) {
         return builder(core, null);
     }
     
     private static WebResource builder(LfCore core, String userToken) {
-        return client(core, userToken).resource(String.format(BASE_URL, Domain.quill(core)));
+        Network network = LivefyreUtil.getNetworkFromCore(core);
+        WebResource r = network.getTransport().quill(network.getEndpoints().getPersonalizedStream());
+        r.addFilter(new LftokenAuthFilter(core, userToken));
+        return r;
     }
     
     private static WebResource streamBuilder(LfCore core) {
-        return client(core, null).resource(String.format(STREAM_BASE_URL, Domain.bootstrap(core)));
+        Network network = LivefyreUtil.getNetworkFromCore(core);
+        WebResource r = network.getTransport().bootstrap(network.getEndpoints().getStream());
+        r.addFilter(new LftokenAuthFilter(core, null));
+        return r;
     }
 
-    private static Client client(LfCore core, String userToken) {
-        Client c = Client.create();
-        c.getProperties().put(URLConnectionClientHandler.PROPERTY_HTTP_URL_CONNECTION_SET_METHOD_WORKAROUND, true);
-        c.getProperties().put(ClientConfig.PROPERTY_CONNECT_TIMEOUT, 1000);
-        c.getProperties().put(ClientConfig.PROPERTY_READ_TIMEOUT, 10000);
-        c.addFilter(new LftokenAuthFilter(core, userToken));
-        return c;
+    private static Transport transport(LfCore core) {
+        return LivefyreUtil.getNetworkFromCore(core).getTransport();
     }
     
     private static JsonObject evaluateResponse(ClientResponse response) {
         if (response.getStatus() >= 400) {
+            response.close();
             throw new ApiException(response.getStatus());
         }
         return LivefyreUtil.stringToJson(response.getEntity(String.class));
     }
     
+    /* List endpoints are decoded straight off the response stream, without building a tree first. */
+    private static List<Topic> evaluateTopics(ClientResponse response) {
+        JsonReader reader = openDataArray(response, "topics");
+        List<Topic> topics = Lists.newArrayList();
+        try {
+            if (reader != null) {
+                while (reader.hasNext()) {
+                    topics.add(Topic.serializeFromJson(reader));
+                }
+            }
+            return topics;
+        } catch (IOException e) {
+            throw new ApiException(e);
+        } catch (IllegalStateException e) {
+            throw new ApiException(e);
+        } finally {
+            response.close();
+        }
+    }
+
+    private static List<Subscription> evaluateSubscriptions(ClientResponse response) {
+        JsonReader reader = openDataArray(response, "subscriptions");
+        List<Subscription> subscriptions = Lists.newArrayList();
+        try {
+            if (reader != null) {
+                while (reader.hasNext()) {
+                    subscriptions.add(Subscription.serializeFromJson(reader));
+                }
+            }
+            return subscriptions;
+        } catch (IOException e) {
+            throw new ApiException(e);
+        } catch (IllegalStateException e) {
+            throw new ApiException(e);
+        } finally {
+            response.close();
+        }
+    }
+
+    /* Returns a reader positioned inside data.<field>, or null if the response has no such array. */
+    private static JsonReader openDataArray(ClientResponse response, String field) {
+        if (response.getStatus() >= 400) {
+            response.close();
+            throw new ApiException(response.getStatus());
+        }
+        JsonReader reader = new JsonReader(new InputStreamReader(response.getEntityInputStream(), UTF8));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("data".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (field.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                            reader.beginArray();
+                            return reader;
+                        }
+                        reader.skipValue();
+                    }
+                    return null;
+                }
+                reader.skipValue();
+            }
+            return null;
+        } catch (IOException e) {
+            response.close();
+            throw new ApiException(e);
+        } catch (IllegalStateException e) {
+            response.close();
+            throw new ApiException(e);
+        }
+    }
+    
+    /* The calling thread waits for a free slot before submitting each chunk, so at most maxInFlight run at a time. */
+    private static <I, T> BatchResult<T> sendInChunks(LfCore core, List<I> items, List<String> ids, int chunkSize,
+            int maxInFlight, final Function<List<I>, T> call) {
+        if (chunkSize < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Chunk size and max in flight must be at least 1.");
+        }
+        Transport transport = transport(core);
+        InFlightWindow window = new InFlightWindow(maxInFlight);
+        List<ListenableFuture<T>> futures = Lists.newArrayList();
+        try {
+            for (final List<I> chunk : Lists.partition(items, chunkSize)) {
+                futures.add(window.submit(transport, new Callable<T>() {
+                    public T call() {
+                        return call.apply(chunk);
+                    }
+                }));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LivefyreException("Interrupted while sending a batch. Chunks already sent may still complete.", e);
+        }
+
+        List<List<String>> idChunks = Lists.partition(ids, chunkSize);
+        List<ChunkResult<T>> results = Lists.newArrayListWithCapacity(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            List<String> chunkIds = ImmutableList.copyOf(idChunks.get(i));
+            try {
+                results.add(ChunkResult.success(chunkIds, Uninterruptibles.getUninterruptibly(futures.get(i))));
+            } catch (ExecutionException e) {
+                results.add(ChunkResult.<T>failure(chunkIds, e.getCause()));
+            }
+        }
+        return new BatchResult<T>(results);
+    }
+
+    private static void checkLabel(String label) {
+        if (StringUtils.isEmpty(label) || label.length() > 128) {
+            throw new IllegalArgumentException("Topic label is of incorrect length or empty.");
+        }
+    }
+    
     private static List<String> getTopicIds(List<Topic> topics) {
         List<String> ids = Lists.newArrayList();
         for (Topic topic : topics) {
@@ -336,7 +644,10 @@ public class PersonalizedStream {
     }
 
     private static String getUserFromToken(Network network, String userToken) {
-        JsonObject json = LivefyreUtil.decodeJwt(userToken, network.getData().getKey());
-        return json.get("user_id").getAsString();
+        String userId = JwtVerifier.forKey(network.getData().getKey()).verify(userToken).getUserId();
+        if (userId == null) {
+            throw new TokenException("User token does not contain a user_id.");
+        }
+        return userId;
     }
 }
@@ -0,0 +1,190 @@
+package com.livefyre.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.gson.JsonObject;
+import com.livefyre.core.Collection;
+import com.livefyre.core.LfCore;
+import com.livefyre.core.Network;
+import com.livefyre.cursor.TimelineCursor;
+import com.livefyre.dto.Subscription;
+import com.livefyre.dto.TimelinePage;
+import com.livefyre.dto.Topic;
+import com.livefyre.utils.LivefyreUtil;
+
+/**
+ * Asynchronous counterpart to PersonalizedStream. Every call is run on the executor of the Network's
+ * Transport and returns immediately with a ListenableFuture of the result. API errors are reported
+ * through the future as an ApiException.
+ */
+public class PersonalizedStreamAsync {
+
+    /* Private constructor to prevent instantiation. */
+    private PersonalizedStreamAsync() { }
+
+    /* Topic API */
+    public static ListenableFuture<Topic> getTopic(final LfCore core, final String topicId) {
+        return submit(core, new Callable<Topic>() {
+            public Topic call() {
+                return PersonalizedStream.getTopic(core, topicId);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Topic> createOrUpdateTopic(final LfCore core, final String topicId, final String label) {
+        return submit(core, new Callable<Topic>() {
+            public Topic call() {
+                return PersonalizedStream.createOrUpdateTopic(core, topicId, label);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Boolean> deleteTopic(final LfCore core, final Topic topic) {
+        return submit(core, new Callable<Boolean>() {
+            public Boolean call() {
+                return PersonalizedStream.deleteTopic(core, topic);
+            }
+        });
+    }
+    
+    /* Multiple Topic API */
+    public static ListenableFuture<List<Topic>> getTopics(final LfCore core, final Integer limit, final Integer offset) {
+        return submit(core, new Callable<List<Topic>>() {
+            public List<Topic> call() {
+                return PersonalizedStream.getTopics(core, limit, offset);
+            }
+        });
+    }
+    
+    public static ListenableFuture<List<Topic>> createOrUpdateTopics(final LfCore core, final Map<String, String> topicMap) {
+        return submit(core, new Callable<List<Topic>>() {
+            public List<Topic> call() {
+                return PersonalizedStream.createOrUpdateTopics(core, topicMap);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Integer> deleteTopics(final LfCore core, final List<Topic> topics) {
+        return submit(core, new Callable<Integer>() {
+            public Integer call() {
+                return PersonalizedStream.deleteTopics(core, topics);
+            }
+        });
+    }
+    
+    /* Collection Topic API */
+    public static ListenableFuture<List<String>> getCollectionTopics(final Collection collection) {
+        return submit(collection, new Callable<List<String>>() {
+            public List<String> call() {
+                return PersonalizedStream.getCollectionTopics(collection);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Integer> addCollectionTopics(final Collection collection, final List<Topic> topics) {
+        return submit(collection, new Callable<Integer>() {
+            public Integer call() {
+                return PersonalizedStream.addCollectionTopics(collection, topics);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Map<String, Integer>> replaceCollectionTopics(final Collection collection, final List<Topic> topics) {
+        return submit(collection, new Callable<Map<String, Integer>>() {
+            public Map<String, Integer> call() {
+                return PersonalizedStream.replaceCollectionTopics(collection, topics);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Integer> removeCollectionTopics(final Collection collection, final List<Topic> topics) {
+        return submit(collection, new Callable<Integer>() {
+            public Integer call() {
+                return PersonalizedStream.removeCollectionTopics(collection, topics);
+            }
+        });
+    }
+    
+    /* Subscription API */
+    public static ListenableFuture<List<Subscription>> getSubscriptions(final Network network, final String userId) {
+        return submit(network, new Callable<List<Subscription>>() {
+            public List<Subscription> call() {
+                return PersonalizedStream.getSubscriptions(network, userId);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Integer> addSubscriptions(final Network network, final String userToken, final List<Topic> topics) {
+        return submit(network, new Callable<Integer>() {
+            public Integer call() {
+                return PersonalizedStream.addSubscriptions(network, userToken, topics);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Map<String, Integer>> replaceSubscriptions(final Network network, final String userToken, final List<Topic> topics) {
+        return submit(network, new Callable<Map<String, Integer>>() {
+            public Map<String, Integer> call() {
+                return PersonalizedStream.replaceSubscriptions(network, userToken, topics);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Map<String, Integer>> replaceSubscriptionsByDelta(final Network network, final String userToken, final List<Topic> topics) {
+        return submit(network, new Callable<Map<String, Integer>>() {
+            public Map<String, Integer> call() {
+                return PersonalizedStream.replaceSubscriptionsByDelta(network, userToken, topics);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Map<String, Integer>> replaceSubscriptionsByDelta(final Network network, final String userToken, final List<Topic> topics,
+            final List<Subscription> current) {
+        return submit(network, new Callable<Map<String, Integer>>() {
+            public Map<String, Integer> call() {
+                return PersonalizedStream.replaceSubscriptionsByDelta(network, userToken, topics, current);
+            }
+        });
+    }
+    
+    public static ListenableFuture<Integer> removeSubscriptions(final Network network, final String userToken, final List<Topic> topics) {
+        return submit(network, new Callable<Integer>() {
+            public Integer call() {
+                return PersonalizedStream.removeSubscriptions(network, userToken, topics);
+            }
+        });
+    }
+    
+    public static ListenableFuture<List<Subscription>> getSubscribers(final Network network, final Topic topic, final Integer limit, final Integer offset) {
+        return submit(network, new Callable<List<Subscription>>() {
+            public List<Subscription> call() {
+                return PersonalizedStream.getSubscribers(network, topic, limit, offset);
+            }
+        });
+    }
+    
+    /* Timeline API */
+    public static ListenableFuture<JsonObject> getTimelineStream(final TimelineCursor cursor, final boolean isNext) {
+        return submit(cursor.getCore(), new Callable<JsonObject>() {
+            public JsonObject call() {
+                return PersonalizedStream.getTimelineStream(cursor, isNext);
+            }
+        });
+    }
+    
+    public static ListenableFuture<TimelinePage> getTimelinePage(final TimelineCursor cursor, final boolean isNext) {
+        return submit(cursor.getCore(), new Callable<TimelinePage>() {
+            public TimelinePage call() {
+                return PersonalizedStream.getTimelinePage(cursor, isNext);
+            }
+        });
+    }
+    
+    /* Helper methods */
+    private static <T> ListenableFuture<T> submit(LfCore core, Callable<T> call) {
+        return LivefyreUtil.getNetworkFromCore(core).getTransport().submit(call);
+    }
+}
@@ -0,0 +1,225 @@
+package com.livefyre.api;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.io.Files;
+import com.google.gson.Gson;
+import com.livefyre.core.LfCore;
+import com.livefyre.core.Network;
+import com.livefyre.cursor.OffsetCursor;
+import com.livefyre.cursor.OffsetCursor.PageIterator;
+import com.livefyre.dto.Subscription;
+import com.livefyre.dto.Topic;
+import com.livefyre.factory.GsonFactory;
+import com.livefyre.utils.LivefyreUtil;
+
+/**
+ * Exports topic and subscriber lists as NDJSON, one JSON object per line, without holding the list in
+ * memory. Pages are fetched ahead of the one being written, up to prefetch pages at a time, and written
+ * in order.
+ *
+ * Exports to a file are resumable: after each page the export records in a checkpoint file next to it
+ * how far it got, and an export to the same file picks up from there. The checkpoint is deleted once
+ * the export completes. Gzipped files are written as one gzip member per page, which any gzip reader
+ * reads as a single stream.
+ */
+public class PersonalizedStreamExport {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_PREFETCH = 4;
+
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /* Private constructor to prevent instantiation. */
+    private PersonalizedStreamExport() { }
+
+    /**
+     * Writes the core's topics to out, starting at an offset.
+     *
+     * @param core the network, site or collection whose topics to export.
+     * @param out the stream to write to. It is flushed but not closed.
+     * @param startOffset the offset of the first topic, e.g. where an earlier export stopped.
+     * @return the number of topics written.
+     * @throws IOException if writing fails.
+     */
+    public static long exportTopics(LfCore core, OutputStream out, int startOffset) throws IOException {
+        return export(topicCursor(core), out, startOffset);
+    }
+
+    /**
+     * Writes the core's topics to file, resuming an earlier export to the same file if it did not complete.
+     *
+     * @param core the network, site or collection whose topics to export.
+     * @param file the file to write to.
+     * @param gzip whether to gzip the file.
+     * @return the number of topics in the file.
+     * @throws IOException if writing fails.
+     */
+    public static long exportTopics(LfCore core, File file, boolean gzip) throws IOException {
+        return export(topicCursor(core), file, gzip);
+    }
+
+    /**
+     * Writes the topic's subscribers to out, starting at an offset.
+     *
+     * @param network the topic's network.
+     * @param topic the topic whose subscribers to export.
+     * @param out the stream to write to. It is flushed but not closed.
+     * @param startOffset the offset of the first subscriber, e.g. where an earlier export stopped.
+     * @return the number of subscribers written.
+     * @throws IOException if writing fails.
+     */
+    public static long exportSubscribers(Network network, Topic topic, OutputStream out, int startOffset) throws IOException {
+        return export(subscriberCursor(network, topic), out, startOffset);
+    }
+
+    /**
+     * Writes the topic's subscribers to file, resuming an earlier export to the same file if it did not complete.
+     *
+     * @param network the topic's network.
+     * @param topic the topic whose subscribers to export.
+     * @param file the file to write to.
+     * @param gzip whether to gzip the file.
+     * @return the number of subscribers in the file.
+     * @throws IOException if writing fails.
+     */
+    public static long exportSubscribers(Network network, Topic topic, File file, boolean gzip) throws IOException {
+        return export(subscriberCursor(network, topic), file, gzip);
+    }
+
+    private static OffsetCursor<Topic> topicCursor(final LfCore core) {
+        return new OffsetCursor<Topic>(LivefyreUtil.getNetworkFromCore(core).getTransport().getExecutor(),
+                DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH) {
+            @Override
+            protected List<Topic> fetchPage(int limit, int offset) {
+                return PersonalizedStream.getTopics(core, limit, offset);
+            }
+        };
+    }
+
+    private static OffsetCursor<Subscription> subscriberCursor(final Network network, final Topic topic) {
+        return new OffsetCursor<Subscription>(network.getTransport().getExecutor(), DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH) {
+            @Override
+            protected List<Subscription> fetchPage(int limit, int offset) {
+                return PersonalizedStream.getSubscribers(network, topic, limit, offset);
+            }
+        };
+    }
+
+    private static <T> long export(OffsetCursor<T> cursor, OutputStream out, int startOffset) throws IOException {
+        long written = 0;
+        PageIterator<T> pages = cursor.pages(startOffset);
+        try {
+            while (pages.hasNext()) {
+                written += writePage(pages.next(), out);
+            }
+        } finally {
+            pages.close();
+        }
+        out.flush();
+        return written;
+    }
+
+    private static <T> long export(OffsetCursor<T> cursor, File file, boolean gzip) throws IOException {
+        File checkpoint = new File(file.getPath() + CHECKPOINT_SUFFIX);
+        long offset = 0;
+        long length = 0;
+        if (checkpoint.exists() && file.exists()) {
+            DataInputStream in = new DataInputStream(new FileInputStream(checkpoint));
+            try {
+                offset = in.readLong();
+                length = in.readLong();
+            } finally {
+                in.close();
+            }
+            // a file shorter than the checkpoint says did not survive; start over.
+            if (file.length() < length) {
+                offset = 0;
+                length = 0;
+            }
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+
+        FileOutputStream fos = new FileOutputStream(file, true);
+        PageIterator<T> pages = cursor.pages((int) offset);
+        try {
+            OutputStream buffered = new BufferedOutputStream(fos);
+            while (pages.hasNext()) {
+                List<T> page = pages.next();
+                if (gzip) {
+                    OutputStream member = new GZIPOutputStream(unclosable(buffered));
+                    writePage(page, member);
+                    member.close();
+                } else {
+                    writePage(page, buffered);
+                }
+                buffered.flush();
+                offset += page.size();
+                writeCheckpoint(checkpoint, offset, fos.getChannel().position());
+            }
+        } finally {
+            pages.close();
+            fos.close();
+        }
+        checkpoint.delete();
+        return offset;
+    }
+
+    private static <T> int writePage(List<T> page, OutputStream out) throws IOException {
+        Gson gson = GsonFactory.getGson();
+        Writer writer = new OutputStreamWriter(unclosable(out), UTF8);
+        for (T item : page) {
+            gson.toJson(item, writer);
+            writer.write('\n');
+        }
+        writer.flush();
+        return page.size();
+    }
+
+    /* The checkpoint is replaced as a whole, so an interrupted write leaves the previous one in place. */
+    private static void writeCheckpoint(File checkpoint, long offset, long length) throws IOException {
+        File tmp = new File(checkpoint.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp));
+        try {
+            out.writeLong(offset);
+            out.writeLong(length);
+        } finally {
+            out.close();
+        }
+        Files.move(tmp, checkpoint);
+    }
+
+    /* Closing the returned stream only flushes out, so that wrappers can be closed page by page. */
+    private static OutputStream unclosable(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package com.livefyre.api;
+
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.livefyre.api.filter.ConnectionLimitFilter;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.client.urlconnection.URLConnectionClientHandler;
+
+/**
+ * Transport is the long-lived HTTP client that every API call for a Network is routed through.
+ * 
+ * A single Jersey client is created up front and shared by all requests, so connections (and TLS
+ * sessions) are kept alive and reused instead of being renegotiated on every call. The number of
+ * open connections is capped per host, separately for quill and bootstrap: a connection counts from
+ * when its request is sent until its response is read or closed. The size of the idle connection
+ * pool itself follows the JVM's http.maxConnections setting.
+ * 
+ * Asynchronous calls are run on an executor owned by the Transport. Its size matches the combined
+ * connection caps, since any further threads would only wait for a connection.
+ * 
+ * Transport is thread-safe.
+ */
+public class Transport {
+    public static final int DEFAULT_CONNECT_TIMEOUT = 1000;
+    public static final int DEFAULT_READ_TIMEOUT = 10000;
+    public static final int DEFAULT_MAX_QUILL_CONNECTIONS = 20;
+    public static final int DEFAULT_MAX_BOOTSTRAP_CONNECTIONS = 20;
+
+    private final Client client;
+    private final ConnectionLimitFilter quillLimit;
+    private final ConnectionLimitFilter bootstrapLimit;
+    private final ListeningExecutorService executor;
+
+    public Transport() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_MAX_QUILL_CONNECTIONS, DEFAULT_MAX_BOOTSTRAP_CONNECTIONS);
+    }
+
+    /**
+     * @param connectTimeout connect timeout in milliseconds.
+     * @param readTimeout read timeout in milliseconds.
+     * @param maxQuillConnections max open connections to the quill host.
+     * @param maxBootstrapConnections max open connections to the bootstrap host.
+     */
+    public Transport(int connectTimeout, int readTimeout, int maxQuillConnections, int maxBootstrapConnections) {
+        ClientConfig config = new DefaultClientConfig();
+        config.getProperties().put(URLConnectionClientHandler.PROPERTY_HTTP_URL_CONNECTION_SET_METHOD_WORKAROUND, true);
+        config.getProperties().put(ClientConfig.PROPERTY_CONNECT_TIMEOUT, connectTimeout);
+        config.getProperties().put(ClientConfig.PROPERTY_READ_TIMEOUT, readTimeout);
+
+        this.client = Client.create(config);
+        this.quillLimit = new ConnectionLimitFilter(maxQuillConnections);
+        this.bootstrapLimit = new ConnectionLimitFilter(maxBootstrapConnections);
+        this.executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(
+                maxQuillConnections + maxBootstrapConnections,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("livefyre-transport-%d").build()));
+    }
+
+    /**
+     * Returns a resource for a url on the quill host. Filters added to the returned resource only
+     * apply to requests made through it.
+     * 
+     * @param uri the full url of the resource.
+     * @return WebResource
+     */
+    public WebResource quill(String uri) {
+        return quill(URI.create(uri));
+    }
+
+    public WebResource quill(URI uri) {
+        WebResource resource = client.resource(uri);
+        resource.addFilter(quillLimit);
+        return resource;
+    }
+
+    /**
+     * Returns a resource for a url on the bootstrap host. Filters added to the returned resource only
+     * apply to requests made through it.
+     * 
+     * @param uri the full url of the resource.
+     * @return WebResource
+     */
+    public WebResource bootstrap(String uri) {
+        return bootstrap(URI.create(uri));
+    }
+
+    public WebResource bootstrap(URI uri) {
+        WebResource resource = client.resource(uri);
+        resource.addFilter(bootstrapLimit);
+        return resource;
+    }
+
+    /**
+     * Runs a blocking API call on this Transport's executor.
+     * 
+     * @param task the call to make.
+     * @return ListenableFuture that completes with the result of the call.
+     */
+    public <T> ListenableFuture<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    public ListeningExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Releases the resources held by the underlying client and executor. This Transport cannot be
+     * used afterwards.
+     */
+    public void destroy() {
+        executor.shutdown();
+        client.destroy();
+    }
+}
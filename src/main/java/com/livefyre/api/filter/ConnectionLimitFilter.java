@@ -0,0 +1,70 @@
+package com.livefyre.api.filter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.livefyre.exceptions.ApiException;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Caps the number of connections that may be open at once against a single host. A connection is
+ * held from when its request is sent until its response is closed, either directly or by reading
+ * the entity with getEntity(), so every response must be closed or read.
+ */
+public class ConnectionLimitFilter extends ClientFilter {
+    private final Semaphore permits;
+
+    public ConnectionLimitFilter(int maxConnections) {
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest cr) throws ClientHandlerException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted while waiting for a connection.", e);
+        }
+        ClientResponse response;
+        try {
+            response = getNext().handle(cr);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        InputStream entity = response.getEntityInputStream();
+        if (entity == null) {
+            permits.release();
+        } else {
+            response.setEntityInputStream(new PermitReleasingInputStream(entity));
+        }
+        return response;
+    }
+
+    /* Gives the permit back when the entity is closed, once however often close() is called. */
+    private class PermitReleasingInputStream extends FilterInputStream {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleasingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
@@ -9,16 +9,16 @@ import com.sun.jersey.api.client.filter.ClientFilter;
 
 public class LftokenAuthFilter extends ClientFilter {
     private final LfCore core;
-    private final String userToken;
+    private final String userAuthHeader;
     
     public LftokenAuthFilter(LfCore core, String userToken) {
         this.core = core;
-        this.userToken = userToken;
+        this.userAuthHeader = userToken == null ? null : "lftoken " + userToken;
     }
     
     @Override
     public ClientResponse handle(ClientRequest cr) throws ClientHandlerException {
-        cr.getHeaders().add("Authorization", "lftoken " + (userToken == null ? LivefyreUtil.getNetworkFromCore(core).buildLivefyreToken() : userToken));
+        cr.getHeaders().add("Authorization", userAuthHeader == null ? LivefyreUtil.getNetworkFromCore(core).buildLivefyreAuthHeader() : userAuthHeader);
         
         return getNext().handle(cr);
     }
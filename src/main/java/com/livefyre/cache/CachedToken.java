@@ -0,0 +1,49 @@
+package com.livefyre.cache;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A signed token along with its precomputed Authorization header value and the points in time at
+ * which it should be refreshed and at which it may no longer be handed out.
+ */
+public class CachedToken {
+    private static final String AUTH_PREFIX = "lftoken ";
+
+    private final String token;
+    private final String authorizationHeader;
+    private final long refreshAt;
+    private final long staleAt;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    CachedToken(String token, long refreshAt, long staleAt) {
+        this.token = token;
+        this.authorizationHeader = AUTH_PREFIX + token;
+        this.refreshAt = refreshAt;
+        this.staleAt = staleAt;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return the value for an Authorization header carrying this token.
+     */
+    public String getAuthorizationHeader() {
+        return authorizationHeader;
+    }
+
+    boolean isStale(long now) {
+        return now >= staleAt;
+    }
+
+    /* Returns true for exactly one caller once the token is due for a refresh. */
+    boolean claimRefresh(long now) {
+        return now >= refreshAt && refreshing.compareAndSet(false, true);
+    }
+
+    /* Lets the next caller claim the refresh again, e.g. after minting the replacement failed. */
+    void releaseRefresh() {
+        refreshing.set(false);
+    }
+}
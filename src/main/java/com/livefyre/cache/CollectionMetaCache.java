@@ -0,0 +1,56 @@
+package com.livefyre.cache;
+
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.livefyre.model.CollectionData;
+
+/**
+ * CollectionMetaCache hands out previously signed collection meta tokens. These tokens carry no
+ * expiry, so a token stays valid for as long as the collection's attributes, issuer and signing key
+ * stay the same; those make up the cache key. The least recently used tokens are evicted once
+ * maxSize is reached.
+ */
+public class CollectionMetaCache {
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final Cache<CollectionMetaKey, String> tokens;
+
+    public CollectionMetaCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize the max number of tokens to hold on to.
+     */
+    public CollectionMetaCache(int maxSize) {
+        this.tokens = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Returns the token for the collection, signing one if there is none.
+     * 
+     * @param data the collection's attributes.
+     * @param iss the urn of the token's issuer.
+     * @param key the key the token is signed with.
+     * @param signer signs a new token.
+     * @return String
+     */
+    public String get(CollectionData data, String iss, String key, Supplier<String> signer) {
+        CollectionMetaKey cacheKey = new CollectionMetaKey(data, iss, key);
+        String token = tokens.getIfPresent(cacheKey);
+        if (token == null) {
+            token = signer.get();
+            tokens.put(cacheKey, token);
+        }
+        return token;
+    }
+
+    public long size() {
+        return tokens.size();
+    }
+
+    public void invalidateAll() {
+        tokens.invalidateAll();
+    }
+}
@@ -0,0 +1,57 @@
+package com.livefyre.cache;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.livefyre.dto.Topic;
+import com.livefyre.model.CollectionData;
+
+/**
+ * A snapshot of everything that goes into a collection meta token: the collection's attributes, the
+ * issuer and the signing key. Its hash is computed from that content once, when it is taken.
+ */
+final class CollectionMetaKey {
+    private final Object[] content;
+    private final int hash;
+
+    CollectionMetaKey(CollectionData data, String iss, String key) {
+        List<Topic> topics = data.getTopics();
+        int topicCount = topics == null ? 0 : topics.size();
+        Object[] content = new Object[9 + topicCount * 4];
+        content[0] = key;
+        content[1] = iss;
+        content[2] = data.getType();
+        content[3] = data.getArticleId();
+        content[4] = data.getTitle();
+        content[5] = data.getUrl();
+        content[6] = data.getTags();
+        content[7] = data.getExtensions();
+        content[8] = topicCount;
+        for (int i = 0, j = 9; i < topicCount; i++) {
+            Topic topic = topics.get(i);
+            content[j++] = topic.getId();
+            content[j++] = topic.getLabel();
+            content[j++] = topic.getCreatedAt();
+            content[j++] = topic.getModifiedAt();
+        }
+        this.content = content;
+        this.hash = Arrays.hashCode(content);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CollectionMetaKey)) {
+            return false;
+        }
+        CollectionMetaKey other = (CollectionMetaKey) obj;
+        return hash == other.hash && Arrays.equals(content, other.content);
+    }
+}
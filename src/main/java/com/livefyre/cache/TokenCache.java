@@ -0,0 +1,108 @@
+package com.livefyre.cache;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * TokenCache hands out previously signed tokens for as long as they remain comfortably valid.
+ * 
+ * Once a token has used up REFRESH_AHEAD of its lifetime, the next caller still receives it, but a
+ * replacement is minted in the background. A token that has used up STALE_AFTER of its lifetime is
+ * never handed out; it is minted again on the calling thread instead. Tokens with no lifetime are
+ * never cached. If a background refresh fails, the next caller starts another one.
+ * 
+ * Keys are compared with equals(), so they must capture everything that goes into the token,
+ * including the signing key.
+ */
+public class TokenCache {
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    private static final double REFRESH_AHEAD = 0.75;
+    private static final double STALE_AFTER = 0.9;
+
+    private final Cache<Object, CachedToken> tokens;
+    private final Executor refreshExecutor;
+    private final Ticker ticker;
+
+    public TokenCache() {
+        this(DEFAULT_MAX_SIZE, Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("livefyre-token-refresh-%d").build()));
+    }
+
+    /**
+     * @param maxSize the max number of tokens to hold on to.
+     * @param refreshExecutor the executor that background refreshes are run on.
+     */
+    public TokenCache(int maxSize, Executor refreshExecutor) {
+        this(maxSize, refreshExecutor, Ticker.systemTicker());
+    }
+
+    /**
+     * @param maxSize the max number of tokens to hold on to.
+     * @param refreshExecutor the executor that background refreshes are run on.
+     * @param ticker the clock that token lifetimes are measured with.
+     */
+    public TokenCache(int maxSize, Executor refreshExecutor, Ticker ticker) {
+        this.tokens = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+        this.refreshExecutor = refreshExecutor;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Returns a still-valid token for the key, minting one if there is none.
+     * 
+     * @param key identifies the token. Must capture everything that goes into the token.
+     * @param expires how long a minted token is valid for, in seconds.
+     * @param minter signs a new token.
+     * @return CachedToken
+     */
+    public CachedToken get(final Object key, final double expires, final Supplier<String> minter) {
+        if (expires <= 0) {
+            return mint(expires, minter);
+        }
+        long now = now();
+        CachedToken cached = tokens.getIfPresent(key);
+        if (cached == null || cached.isStale(now)) {
+            cached = mint(expires, minter);
+            tokens.put(key, cached);
+        } else if (cached.claimRefresh(now)) {
+            final CachedToken current = cached;
+            try {
+                refreshExecutor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            tokens.put(key, mint(expires, minter));
+                        } catch (RuntimeException e) {
+                            current.releaseRefresh();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                tokens.invalidate(key);
+            }
+        }
+        return cached;
+    }
+
+    public void invalidateAll() {
+        tokens.invalidateAll();
+    }
+
+    private CachedToken mint(double expires, Supplier<String> minter) {
+        long issuedAt = now();
+        long lifetime = (long) (expires * 1000);
+        return new CachedToken(minter.get(),
+                issuedAt + (long) (lifetime * REFRESH_AHEAD), issuedAt + (long) (lifetime * STALE_AFTER));
+    }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(ticker.read());
+    }
+}
@@ -2,29 +2,61 @@ package com.livefyre.core;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.ws.rs.core.MediaType;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jose4j.base64url.Base64Url;
 
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
-import com.google.gson.Gson;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.gson.JsonObject;
-import com.livefyre.api.Domain;
+import com.livefyre.api.Transport;
+import com.livefyre.cache.CollectionMetaCache;
 import com.livefyre.dto.Topic;
 import com.livefyre.exceptions.ApiException;
 import com.livefyre.exceptions.LivefyreException;
+import com.livefyre.ledger.ChecksumLedger;
+import com.livefyre.ledger.LedgerEntry;
 import com.livefyre.model.CollectionData;
+import com.livefyre.model.Urn;
 import com.livefyre.type.CollectionType;
+import com.livefyre.utils.CollectionJsonWriter;
+import com.livefyre.utils.JwtSigner;
 import com.livefyre.utils.LivefyreUtil;
 import com.livefyre.validator.ReflectiveValidator;
-import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 
 public class Collection implements LfCore {
+    private static final CollectionMetaCache META_TOKEN_CACHE = new CollectionMetaCache();
+    /* (siteId, articleId) pairs that Livefyre is known to have a collection for. */
+    private static final Cache<List<String>, Boolean> EXISTING = CacheBuilder.newBuilder()
+            .maximumSize(100000)
+            .build();
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new LivefyreException("MD5 message digest missing. This shouldn't ever happen." + e);
+            }
+        }
+    };
+    
     private Site site;
     private CollectionData data;
     
@@ -35,43 +67,134 @@ public class Collection implements LfCore {
     
     public static Collection init(Site site, CollectionType type, String title, String articleId, String url) {
         CollectionData data = new CollectionData(type, title, articleId, url);
-        return new Collection(site, ReflectiveValidator.validate(data));
+        Collection collection = new Collection(site, ReflectiveValidator.validate(data));
+        collection.restoreId();
+        return collection;
     }
     
     /**
      * Informs Livefyre to either create or update a collection based on the attributes of this Collection.
-     * Makes an external API call. Returns this.
+     * Makes an external API call, unless the network's ChecksumLedger shows that Livefyre already has
+     * these exact attributes, in which case only the collection id is set. Returns this.
+     * 
+     * Collections that are known to exist, from the ledger or from earlier calls, are updated straight
+     * away; others are created, and updated only if Livefyre answers that they already exist.
      * 
      * @return Collection
      */
     public Collection createOrUpdate() {
-        ClientResponse response = invokeCollectionApi("create");
-        if (response.getStatus() == 200) {
-            data.setId(LivefyreUtil.stringToJson(response.getEntity(String.class))
-                    .getAsJsonObject("data").get("collectionId").getAsString());
+        String checksum = buildChecksum();
+        if (isUnchanged(checksum)) {
             return this;
-        } else if (response.getStatus() == 409) {
-            response = invokeCollectionApi("update");
-            if (response.getStatus() == 200) {
-                data.setId(LivefyreUtil.stringToJson(response.getEntity(String.class))
-                        .getAsJsonObject("data").get("collectionId").getAsString());
-                return this;
-            }
         }
-        throw new ApiException(response.getStatus());
+        String payload = getPayload(checksum);
+        String method = isKnownToExist() ? "update" : "create";
+        ClientResponse response = invokeCollectionApi(method, payload);
+        String fallback = fallbackMethod(method, response.getStatus());
+        if (fallback != null) {
+            response.close();
+            response = invokeCollectionApi(fallback, payload);
+        }
+        return evaluateUpsertResponse(response, checksum);
+    }
+
+    /**
+     * Asynchronous version of createOrUpdate(). A fallback call, e.g. the update that follows a 409
+     * from the create call, is chained onto the first call rather than waited on.
+     * 
+     * @return ListenableFuture that completes with this Collection.
+     */
+    public ListenableFuture<Collection> createOrUpdateAsync() {
+        final String checksum = buildChecksum();
+        if (isUnchanged(checksum)) {
+            return Futures.immediateFuture(this);
+        }
+        final String payload = getPayload(checksum);
+        final String method = isKnownToExist() ? "update" : "create";
+        final Transport transport = site.getNetwork().getTransport();
+        final SettableFuture<Collection> result = SettableFuture.create();
+        Futures.addCallback(transport.submit(collectionApiCall(method, payload)), new FutureCallback<ClientResponse>() {
+            public void onSuccess(ClientResponse response) {
+                String fallback = fallbackMethod(method, response.getStatus());
+                if (fallback == null) {
+                    complete(response);
+                    return;
+                }
+                response.close();
+                ListenableFuture<ClientResponse> retry;
+                try {
+                    retry = transport.submit(collectionApiCall(fallback, payload));
+                } catch (RejectedExecutionException e) {
+                    result.setException(e);
+                    return;
+                }
+                Futures.addCallback(retry, new FutureCallback<ClientResponse>() {
+                    public void onSuccess(ClientResponse response) {
+                        complete(response);
+                    }
+
+                    public void onFailure(Throwable t) {
+                        result.setException(t);
+                    }
+                }, MoreExecutors.directExecutor());
+            }
+
+            public void onFailure(Throwable t) {
+                result.setException(t);
+            }
+
+            private void complete(ClientResponse response) {
+                try {
+                    result.set(evaluateUpsertResponse(response, checksum));
+                } catch (RuntimeException e) {
+                    result.setException(e);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
     }
 
     /**
-     * Generates a collection meta token representing this collection.
+     * Queues this collection on its site's upsert queue instead of sending it now. Edits of the same
+     * article that are queued shortly after one another are sent as one upsert.
+     * 
+     * @return ListenableFuture that completes with the collection's id.
+     */
+    public ListenableFuture<String> createOrUpdateLater() {
+        return site.getUpsertQueue().submit(this);
+    }
+
+    /**
+     * Generates a collection meta token representing this collection. Tokens are cached, and handed
+     * out again for as long as the collection's attributes and signing key stay the same.
      * 
      * @return String.
      */
     public String buildCollectionMetaToken() {
-        Map<String, Object> claims = data.asMap();
         boolean isNetworkIssued = isNetworkIssued();
-        claims.put("iss", isNetworkIssued ? site.getNetwork().getUrn() : site.getUrn());
-        return LivefyreUtil.serializeAndSign(claims, isNetworkIssued ?
-                site.getNetwork().getData().getKey() : site.getData().getKey());
+        final String iss = isNetworkIssued ? site.getNetwork().getUrn() : site.getUrn();
+        final String key = isNetworkIssued ? site.getNetwork().getData().getKey() : site.getData().getKey();
+        return META_TOKEN_CACHE.get(data, iss, key, new Supplier<String>() {
+            public String get() {
+                CollectionJsonWriter claims = CollectionJsonWriter.get().write(data, iss);
+                return JwtSigner.forKey(key).sign(claims.getBuffer(), claims.getLength());
+            }
+        });
+    }
+
+    /**
+     * Generates the collection meta tokens for a batch of collections, e.g. all the collections
+     * rendered on a page.
+     * 
+     * @param collections the collections.
+     * @return the tokens, in the same order as the collections.
+     */
+    public static List<String> buildCollectionMetaTokens(List<Collection> collections) {
+        List<String> tokens = Lists.newArrayListWithCapacity(collections.size());
+        for (Collection collection : collections) {
+            tokens.add(collection.buildCollectionMetaToken());
+        }
+        return tokens;
     }
 
     /**
@@ -80,13 +203,23 @@ public class Collection implements LfCore {
      * @return String.
      */
     public String buildChecksum() {
-        try {
-            Map<String, Object> attr = data.asMap();
-            byte[] digest = MessageDigest.getInstance("MD5").digest(LivefyreUtil.mapToJsonString(attr).getBytes());
-            return printHexBinary(digest);
-        } catch (NoSuchAlgorithmException e) {
-            throw new LivefyreException("MD5 message digest missing. This shouldn't ever happen." + e);
-        }
+        CollectionJsonWriter json = CollectionJsonWriter.get().write(data, null);
+        MessageDigest md5 = MD5.get();
+        md5.update(json.getBuffer(), 0, json.getLength());
+        return printHexBinary(md5.digest());
+    }
+
+    /**
+     * Asynchronous version of getCollectionContent().
+     * 
+     * @return ListenableFuture that completes with the collection's information.
+     */
+    public ListenableFuture<JsonObject> getCollectionContentAsync() {
+        return site.getNetwork().getTransport().submit(new Callable<JsonObject>() {
+            public JsonObject call() {
+                return getCollectionContent();
+            }
+        });
     }
 
     /**
@@ -99,19 +232,23 @@ public class Collection implements LfCore {
         if (b64articleId.length() % 4 != 0) {
             b64articleId = b64articleId + StringUtils.repeat("=", 4 - (b64articleId.length() % 4));
         }
-        String url = String.format("%s/bs3/%s.fyre.co/%s/%s/init", Domain.bootstrap(this), site.getNetwork().getNetworkName(), site.getData().getId(), b64articleId);
+        String url = site.getNetwork().getEndpoints().collectionContent(site.getData().getId(), b64articleId);
 
-        ClientResponse response = Client.create().resource(url).accept(MediaType.APPLICATION_JSON)
+        ClientResponse response = site.getNetwork().getTransport().bootstrap(url).accept(MediaType.APPLICATION_JSON)
                 .get(ClientResponse.class);
         if (response.getStatus() >= 400) {
+            response.close();
             throw new ApiException(response.getStatus());
         }
-        Gson gson = new Gson();
-        return gson.fromJson(response.getEntity(String.class), JsonObject.class);
+        return LivefyreUtil.stringToJson(response.getEntity(String.class));
     }
 
     public String getUrn() {
-        return String.format("%s:collection=%s", site.getUrn(), data.getId());
+        return urn().toString();
+    }
+    
+    public Urn urn() {
+        return site.urn().collection(data.getId());
     }
     
     public boolean isNetworkIssued() {
@@ -120,10 +257,10 @@ public class Collection implements LfCore {
             return false;
         }
 
-        String networkUrn = site.getNetwork().getUrn();
+        String networkName = site.getNetwork().getData().getName();
         for (Topic topic : topics) {
-            String topicId = topic.getId();
-            if (topicId.startsWith(networkUrn) && !topicId.replace(networkUrn, "").startsWith(":site=")) {
+            Urn urn = topic.urn();
+            if (urn != null && urn.isNetworkTopic() && urn.getNetwork().equals(networkName)) {
                 return true;
             }
         }
@@ -146,18 +283,97 @@ public class Collection implements LfCore {
         this.data = data;
     }
 
-    private ClientResponse invokeCollectionApi(String method) {
-        String uri = String.format("%s/api/v3.0/site/%s/collection/%s/", Domain.quill(this), site.getData().getId(), method);
-        ClientResponse response = Client.create().resource(uri).queryParam("sync", "1")
+    private ClientResponse invokeCollectionApi(String method, String payload) {
+        String uri = site.getNetwork().getEndpoints().collectionApi(site.getData().getId(), method);
+        ClientResponse response = site.getNetwork().getTransport().quill(uri).queryParam("sync", "1")
                 .accept(MediaType.APPLICATION_JSON).type(MediaType.APPLICATION_JSON)
-                .post(ClientResponse.class, getPayload());
+                .post(ClientResponse.class, payload);
         return response;
     }
     
-    private String getPayload() {
+    private Callable<ClientResponse> collectionApiCall(final String method, final String payload) {
+        return new Callable<ClientResponse>() {
+            public ClientResponse call() {
+                return invokeCollectionApi(method, payload);
+            }
+        };
+    }
+
+    private boolean isKnownToExist() {
+        List<String> key = existenceKey();
+        if (EXISTING.getIfPresent(key) != null) {
+            return true;
+        }
+        ChecksumLedger ledger = site.getNetwork().getChecksumLedger();
+        return ledger != null && ledger.get(key.get(0), key.get(1)) != null;
+    }
+
+    /*
+     * Returns the method to retry with after a status, or null if there is no need to. A 409 to create
+     * means the collection exists; a 404 to update means it is gone, e.g. deleted since we last saw it.
+     */
+    private String fallbackMethod(String method, int status) {
+        if (method.equals("create") && status == 409) {
+            EXISTING.put(existenceKey(), Boolean.TRUE);
+            return "update";
+        }
+        if (method.equals("update") && status == 404) {
+            EXISTING.invalidate(existenceKey());
+            return "create";
+        }
+        return null;
+    }
+
+    private List<String> existenceKey() {
+        return Arrays.asList(site.getData().getId(), data.getArticleId());
+    }
+
+    /* Collections upserted before, e.g. by an earlier run, get their id back from the network's ledger. */
+    private void restoreId() {
+        ChecksumLedger ledger = site.getNetwork().getChecksumLedger();
+        if (ledger == null) {
+            return;
+        }
+        LedgerEntry entry = ledger.get(site.getData().getId(), data.getArticleId());
+        if (entry != null) {
+            data.setId(entry.getCollectionId());
+        }
+    }
+
+    /* If the ledger holds this checksum, Livefyre already has these attributes; just restore the id. */
+    private boolean isUnchanged(String checksum) {
+        ChecksumLedger ledger = site.getNetwork().getChecksumLedger();
+        if (ledger == null) {
+            return false;
+        }
+        LedgerEntry entry = ledger.get(site.getData().getId(), data.getArticleId());
+        if (entry == null || !entry.getChecksum().equals(checksum)) {
+            return false;
+        }
+        data.setId(entry.getCollectionId());
+        return true;
+    }
+
+    private Collection evaluateUpsertResponse(ClientResponse response, String checksum) {
+        if (response.getStatus() != 200) {
+            response.close();
+            throw new ApiException(response.getStatus());
+        }
+        data.setId(LivefyreUtil.stringToJson(response.getEntity(String.class))
+                .getAsJsonObject("data").get("collectionId").getAsString());
+        EXISTING.put(existenceKey(), Boolean.TRUE);
+
+        ChecksumLedger ledger = site.getNetwork().getChecksumLedger();
+        if (ledger != null) {
+            ledger.put(site.getData().getId(), data.getArticleId(), new LedgerEntry(data.getId(), checksum));
+        }
+        return this;
+    }
+    
+    private String getPayload(String checksum) {
         Map<String, Object> payload = ImmutableMap.<String, Object>of(
             "articleId", data.getArticleId(),
-            "checksum", buildChecksum(),
+            "checksum", checksum,
             "collectionMeta", buildCollectionMetaToken());
         return LivefyreUtil.mapToJsonString(payload);
     }
@@ -165,11 +381,11 @@ public class Collection implements LfCore {
     private static final char[] hexCode = "0123456789abcdef".toCharArray();
 
     private String printHexBinary(byte[] data) {
-        StringBuilder r = new StringBuilder(data.length * 2);
-        for (byte b : data) {
-            r.append(hexCode[(b >> 4) & 0xF]);
-            r.append(hexCode[(b & 0xF)]);
+        char[] r = new char[data.length * 2];
+        for (int i = 0; i < data.length; i++) {
+            r[2 * i] = hexCode[(data[i] >> 4) & 0xF];
+            r[2 * i + 1] = hexCode[(data[i] & 0xF)];
         }
-        return r.toString();
+        return new String(r);
     }
 }
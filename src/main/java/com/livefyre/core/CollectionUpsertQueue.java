@@ -0,0 +1,230 @@
+package com.livefyre.core;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.livefyre.exceptions.LivefyreException;
+
+/**
+ * Takes collection upserts off the caller's thread. Collections submitted for the same articleId
+ * within the window are merged: only the last one submitted is sent, and every submitter gets its
+ * result. Upserts are sent with createOrUpdateAsync(), at most maxConcurrency at a time, and never
+ * more than one at a time for the same articleId.
+ *
+ * Use Site.getUpsertQueue() or Collection.createOrUpdateLater() rather than creating one directly;
+ * those share one queue between all Sites with the same id.
+ */
+public class CollectionUpsertQueue {
+    public static final long DEFAULT_WINDOW_MILLIS = 1000;
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    private final Site site;
+    private final long windowMillis;
+    private final int maxConcurrency;
+
+    private final Object lock = new Object();
+    /* Upserts that are still taking changes: waiting for their window to end or for a free slot. */
+    private final Map<String, PendingUpsert> pending = new HashMap<String, PendingUpsert>();
+    private final Deque<PendingUpsert> ready = new ArrayDeque<PendingUpsert>();
+    private final Set<String> inFlight = new HashSet<String>();
+    /* Upserts taken off ready but not started yet, and whether a thread is starting them. */
+    private final Deque<PendingUpsert> starting = new ArrayDeque<PendingUpsert>();
+    private boolean sending;
+    private ScheduledExecutorService timer;
+    private boolean shutdown;
+
+    public CollectionUpsertQueue(Site site) {
+        this(site, DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * @param site the site whose collections are upserted.
+     * @param windowMillis how long to wait for further changes to a collection before sending it.
+     * @param maxConcurrency max upserts in flight at a time.
+     */
+    public CollectionUpsertQueue(Site site, long windowMillis, int maxConcurrency) {
+        if (windowMillis < 0 || maxConcurrency < 1) {
+            throw new IllegalArgumentException("The window cannot be negative and max concurrency must be at least 1.");
+        }
+        this.site = site;
+        this.windowMillis = windowMillis;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Queues an upsert of the collection's current attributes. The collection should not be changed
+     * afterwards; build a new one for later edits.
+     *
+     * @param collection a collection of a site with this queue's site id.
+     * @return ListenableFuture that completes with the collection's id.
+     */
+    public ListenableFuture<String> submit(Collection collection) {
+        if (!collection.getSite().getData().getId().equals(getSiteId())) {
+            throw new IllegalArgumentException("Collections can only be queued on their own site's queue.");
+        }
+        String articleId = collection.getData().getArticleId();
+        synchronized (lock) {
+            if (shutdown) {
+                throw new LivefyreException("This upsert queue has been shut down.");
+            }
+            PendingUpsert upsert = pending.get(articleId);
+            if (upsert == null) {
+                upsert = new PendingUpsert(articleId);
+                pending.put(articleId, upsert);
+                schedule(upsert);
+            }
+            upsert.collection = collection;
+            return upsert.result;
+        }
+    }
+
+    String getSiteId() {
+        return site.getData().getId();
+    }
+
+    /**
+     * Sends everything queued without waiting for the rest of the windows.
+     */
+    public void flush() {
+        List<PendingUpsert> started;
+        synchronized (lock) {
+            for (PendingUpsert upsert : pending.values()) {
+                markReady(upsert);
+            }
+            started = drain();
+        }
+        send(started);
+    }
+
+    /**
+     * Sends everything queued and stops accepting upserts. Upserts already queued still complete.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            if (timer != null) {
+                timer.shutdown();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * @return the number of upserts queued or in flight.
+     */
+    public int size() {
+        synchronized (lock) {
+            return pending.size() + inFlight.size();
+        }
+    }
+
+    private void schedule(final PendingUpsert upsert) {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("livefyre-upsert-queue-%d").build());
+        }
+        timer.schedule(new Runnable() {
+            public void run() {
+                List<PendingUpsert> started;
+                synchronized (lock) {
+                    markReady(upsert);
+                    started = drain();
+                }
+                send(started);
+            }
+        }, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void markReady(PendingUpsert upsert) {
+        if (!upsert.ready) {
+            upsert.ready = true;
+            ready.add(upsert);
+        }
+    }
+
+    /* Takes the upserts that can be sent now, oldest first. Must hold the lock. */
+    private List<PendingUpsert> drain() {
+        List<PendingUpsert> started = Lists.newArrayList();
+        Iterator<PendingUpsert> it = ready.iterator();
+        while (inFlight.size() < maxConcurrency && it.hasNext()) {
+            PendingUpsert upsert = it.next();
+            if (inFlight.add(upsert.articleId)) {
+                it.remove();
+                pending.remove(upsert.articleId);
+                started.add(upsert);
+            }
+        }
+        return started;
+    }
+
+    /*
+     * Starts the upserts. Calls that complete right away, e.g. for collections the ledger has unchanged,
+     * run their callbacks on this thread; the upserts those free up are started by the loop here rather
+     * than by a nested send(), so a long run of them cannot overflow the stack.
+     */
+    private void send(List<PendingUpsert> started) {
+        synchronized (lock) {
+            starting.addAll(started);
+            if (sending) {
+                return;
+            }
+            sending = true;
+        }
+        while (true) {
+            PendingUpsert upsert;
+            synchronized (lock) {
+                upsert = starting.poll();
+                if (upsert == null) {
+                    sending = false;
+                    return;
+                }
+            }
+            start(upsert);
+        }
+    }
+
+    private void start(final PendingUpsert upsert) {
+        ListenableFuture<Collection> call;
+        try {
+            call = upsert.collection.createOrUpdateAsync();
+        } catch (RuntimeException e) {
+            call = Futures.immediateFailedFuture(e);
+        }
+        Futures.addCallback(call, new FutureCallback<Collection>() {
+            public void onSuccess(Collection collection) {
+                List<PendingUpsert> next = done();
+                upsert.result.set(collection.getData().getId());
+                send(next);
+            }
+
+            public void onFailure(Throwable t) {
+                List<PendingUpsert> next = done();
+                upsert.result.setException(t);
+                send(next);
+            }
+
+            private List<PendingUpsert> done() {
+                synchronized (lock) {
+                    inFlight.remove(upsert.articleId);
+                    return drain();
+                }
+            }
+        }, MoreExecutors.directExecutor());
+    }
+}
@@ -0,0 +1,57 @@
+package com.livefyre.core;
+
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A network's upsert queues, one per site id. Sites are cheap and built anew by every
+ * Network.getSite() call, so the queues are kept here rather than on the Site, and every Site with
+ * the same id shares one queue and its timer thread.
+ *
+ * Use Network.getUpsertQueues() or Site.getUpsertQueue() rather than creating one directly.
+ */
+public class CollectionUpsertQueues {
+    private final ConcurrentMap<String, CollectionUpsertQueue> queues = Maps.newConcurrentMap();
+
+    /**
+     * Returns the queue for the site's id. A queue with the default window and concurrency is created
+     * on first use.
+     *
+     * @param site the site whose queue to return.
+     * @return CollectionUpsertQueue
+     */
+    public CollectionUpsertQueue get(Site site) {
+        String siteId = site.getData().getId();
+        CollectionUpsertQueue queue = queues.get(siteId);
+        if (queue == null) {
+            CollectionUpsertQueue created = new CollectionUpsertQueue(site);
+            queue = queues.putIfAbsent(siteId, created);
+            if (queue == null) {
+                queue = created;
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Uses another queue for its site's id. The queue it replaces, if any, is shut down.
+     *
+     * @param queue the queue to use.
+     */
+    public void put(CollectionUpsertQueue queue) {
+        CollectionUpsertQueue replaced = queues.put(queue.getSiteId(), queue);
+        if (replaced != null && replaced != queue) {
+            replaced.shutdown();
+        }
+    }
+
+    /**
+     * Shuts down every queue. Upserts already queued still complete.
+     */
+    public void shutdown() {
+        for (CollectionUpsertQueue queue : queues.values()) {
+            queue.shutdown();
+        }
+    }
+}
@@ -3,19 +3,29 @@ package com.livefyre.core;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableMap;
-import com.google.gson.JsonObject;
-import com.livefyre.api.Domain;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.livefyre.api.Endpoints;
+import com.livefyre.api.Transport;
+import com.livefyre.cache.CachedToken;
+import com.livefyre.cache.TokenCache;
 import com.livefyre.exceptions.ApiException;
+import com.livefyre.journal.MutationJournal;
+import com.livefyre.ledger.ChecksumLedger;
 import com.livefyre.model.NetworkData;
+import com.livefyre.model.Urn;
+import com.livefyre.utils.JwtVerifier;
 import com.livefyre.utils.LivefyreUtil;
+import com.livefyre.utils.TokenClaims;
 import com.livefyre.validator.ReflectiveValidator;
-import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 
 public class Network implements LfCore {
@@ -23,9 +33,18 @@ public class Network implements LfCore {
     private static final String DEFAULT_USER = "system";
     private static final String ID = "{id}";
     private static final String ALPHA_DASH_UNDER_DOT_REGEX = "^[a-zZA-Z0-9_\\.-]+$";
+    private static final Pattern USER_ID_PATTERN = Pattern.compile(ALPHA_DASH_UNDER_DOT_REGEX);
+    private static final TokenCache TOKEN_CACHE = new TokenCache();
     
     private NetworkData data;
     private Boolean ssl = true;
+    private volatile String quillUrl;
+    private volatile String bootstrapUrl;
+    private volatile Endpoints resolvedEndpoints;
+    private volatile Transport transport;
+    private volatile ChecksumLedger checksumLedger;
+    private volatile MutationJournal mutationJournal;
+    private volatile CollectionUpsertQueues upsertQueues;
     
     public Network(NetworkData data) {
         this.data = data;
@@ -45,11 +64,12 @@ public class Network implements LfCore {
     public void setUserSyncUrl(String urlTemplate) {
         checkArgument(checkNotNull(urlTemplate).contains(ID), "urlTemplate does not contain %s", ID);
         
-        ClientResponse response = Client.create()
-                .resource(String.format("%s/", Domain.quill(this)))
-                .queryParam("actor_token", buildLivefyreToken())
+        ClientResponse response = getTransport()
+                .quill(getEndpoints().userSync())
+                .queryParam("actor_token", cachedLivefyreToken().getToken())
                 .queryParam("pull_profile_url", urlTemplate)
                 .post(ClientResponse.class);
+        response.close();
         if (response.getStatus() >= 400) {
             throw new ApiException(response.getStatus());
         }
@@ -64,17 +84,33 @@ public class Network implements LfCore {
     public Network syncUser(String userId) {
         checkNotNull(userId);
         
-        String url = String.format("%s/api/v3_0/user/%s/refresh", Domain.quill(this), userId);
-        ClientResponse response = Client.create()
-                .resource(url)
-                .queryParam("lftoken", buildLivefyreToken())
+        ClientResponse response = getTransport()
+                .quill(getEndpoints().userRefresh(userId))
+                .queryParam("lftoken", cachedLivefyreToken().getToken())
                 .post(ClientResponse.class);
+        response.close();
         if (response.getStatus() >= 400) {
             throw new ApiException(response.getStatus());
         }
         return this;
     }
     
+    /**
+     * Asynchronous version of syncUser(userId).
+     * 
+     * @param userId the userId for the user to sync
+     * @return ListenableFuture that completes with this Network once the sync was successful.
+     */
+    public ListenableFuture<Network> syncUserAsync(final String userId) {
+        checkNotNull(userId);
+        
+        return getTransport().submit(new Callable<Network>() {
+            public Network call() {
+                return syncUser(userId);
+            }
+        });
+    }
+    
     /**
      * Generates a user auth system token.
      * 
@@ -83,6 +119,16 @@ public class Network implements LfCore {
     public String buildLivefyreToken() {
         return buildUserAuthToken(DEFAULT_USER, DEFAULT_USER, DEFAULT_EXPIRES);
     }
+
+    /**
+     * Returns the Authorization header value carrying a system token, as sent on API calls. The token
+     * is cached and handed out again for as long as it remains comfortably valid.
+     * 
+     * @return String
+     */
+    public String buildLivefyreAuthHeader() {
+        return cachedLivefyreToken().getAuthorizationHeader();
+    }
     
     /**
      * Generates a user auth token passed on the params passed in. This method serializes the params
@@ -94,20 +140,24 @@ public class Network implements LfCore {
      * @return String
      */
     public String buildUserAuthToken(String userId, String displayName, Double expires) {
-        Pattern pattern = Pattern.compile(ALPHA_DASH_UNDER_DOT_REGEX);
-        checkArgument(pattern.matcher(checkNotNull(userId)).find(),
-                "userId is not valid. be sure the userId matches the following pattern: %s", ALPHA_DASH_UNDER_DOT_REGEX);
-        checkNotNull(displayName);
-        checkNotNull(expires);
-
-        Map<String, Object> claims = ImmutableMap.<String, Object>of(
-                "domain", data.getName(),
-                "user_id", userId,
-                "display_name", displayName,
-                "expires", getExpiryInSeconds(expires)
-            );
+        checkUserAuthParams(userId, displayName, expires);
+        return signUserAuthToken(data.getName(), data.getKey(), userId, displayName, expires);
+    }
 
-        return LivefyreUtil.serializeAndSign(claims, data.getKey());
+    /**
+     * Returns a user auth token like buildUserAuthToken(), but cached per network, user, display name
+     * and lifetime: the same token is handed out again for as long as it remains comfortably valid, and
+     * a fresh one is minted ahead of its expiry. Use this where the same user's token is needed over
+     * and over.
+     * 
+     * @param userId the user id for this token.
+     * @param displayName the display name for this token.
+     * @param expires when the token should expire from the time of its creation in seconds.
+     * @return String
+     */
+    public String getCachedUserAuthToken(String userId, String displayName, Double expires) {
+        checkUserAuthParams(userId, displayName, expires);
+        return cachedToken(userId, displayName, expires).getToken();
     }
 
     /**
@@ -120,10 +170,11 @@ public class Network implements LfCore {
     public boolean validateLivefyreToken(String lfToken) {
         checkNotNull(lfToken);
 
-        JsonObject json = LivefyreUtil.decodeJwt(lfToken, data.getKey());
-        return json.get("domain").getAsString().compareTo(data.getName()) == 0
-            && json.get("user_id").getAsString().compareTo("system") == 0
-            && json.get("expires").getAsLong() >= Calendar.getInstance().getTimeInMillis()/1000L;
+        TokenClaims claims = JwtVerifier.forKey(data.getKey()).verify(lfToken);
+        return data.getName().equals(claims.getDomain())
+            && DEFAULT_USER.equals(claims.getUserId())
+            && claims.getExpires() != null
+            && claims.getExpires() >= Calendar.getInstance().getTimeInMillis()/1000L;
     }
     
     /**
@@ -138,15 +189,19 @@ public class Network implements LfCore {
     }
     
     public String getUrn() {
-        return "urn:livefyre:"+data.getName();
+        return urn().toString();
+    }
+    
+    public Urn urn() {
+        return Urn.network(data.getName());
     }
     
     public String getUrnForUser(String user) {
-        return getUrn()+":user="+user;
+        return urn().user(user).toString();
     }
     
     public String getNetworkName() {
-        return data.getName().split("\\.")[0];
+        return getEndpoints().getNetworkName();
     }
 
     public Boolean isSsl() {
@@ -155,6 +210,169 @@ public class Network implements LfCore {
 
     public void setSsl(Boolean ssl) {
         this.ssl = ssl;
+        this.resolvedEndpoints = null;
+    }
+
+    /**
+     * Returns the Transport that all API calls for this network are routed through. A default
+     * Transport is created on first use.
+     * 
+     * @return Transport
+     */
+    public Transport getTransport() {
+        if (transport == null) {
+            synchronized (this) {
+                if (transport == null) {
+                    transport = new Transport();
+                }
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * Routes this network's API calls through another Transport. The network owns its Transport: the
+     * one it is replacing, if any, is destroyed, so a Transport should not be shared between networks.
+     * 
+     * @param transport the Transport to use.
+     */
+    public void setTransport(Transport transport) {
+        Transport replaced;
+        synchronized (this) {
+            replaced = this.transport;
+            this.transport = transport;
+        }
+        if (replaced != null && replaced != transport) {
+            replaced.destroy();
+        }
+    }
+
+    /**
+     * Returns the base urls of this network's API hosts. They are resolved on first use and again
+     * after the network's data, ssl setting or base url overrides change, including a change of name
+     * made directly on its NetworkData.
+     * 
+     * @return Endpoints
+     */
+    public Endpoints getEndpoints() {
+        Endpoints endpoints = resolvedEndpoints;
+        String name = data.getName();
+        if (endpoints == null || !endpoints.getName().equals(name)) {
+            endpoints = new Endpoints(name, ssl == null || ssl, quillUrl, bootstrapUrl);
+            resolvedEndpoints = endpoints;
+        }
+        return endpoints;
+    }
+
+    /* The endpoints last resolved by getEndpoints(), or null. */
+    Endpoints getResolvedEndpoints() {
+        return resolvedEndpoints;
+    }
+
+    void setResolvedEndpoints(Endpoints resolvedEndpoints) {
+        this.resolvedEndpoints = resolvedEndpoints;
+    }
+
+    /**
+     * Returns the upsert queues of this network's sites, one per site id. They are created on first use.
+     * 
+     * @return CollectionUpsertQueues
+     */
+    public CollectionUpsertQueues getUpsertQueues() {
+        if (upsertQueues == null) {
+            synchronized (this) {
+                if (upsertQueues == null) {
+                    upsertQueues = new CollectionUpsertQueues();
+                }
+            }
+        }
+        return upsertQueues;
+    }
+
+    /**
+     * Replaces this network's upsert queues. The ones replaced, if any, are shut down.
+     * 
+     * @param upsertQueues the queues to use.
+     */
+    public void setUpsertQueues(CollectionUpsertQueues upsertQueues) {
+        CollectionUpsertQueues replaced;
+        synchronized (this) {
+            replaced = this.upsertQueues;
+            this.upsertQueues = upsertQueues;
+        }
+        if (replaced != null && replaced != upsertQueues) {
+            replaced.shutdown();
+        }
+    }
+
+    /**
+     * @return the ledger consulted by Collection.createOrUpdate(), or null if there is none.
+     */
+    public ChecksumLedger getChecksumLedger() {
+        return checksumLedger;
+    }
+
+    /**
+     * Sets a ledger of the last checksum Livefyre acknowledged for each collection. With one set,
+     * createOrUpdate() skips collections that have not changed since. None is set by default.
+     * 
+     * @param checksumLedger the ledger, or null for none.
+     */
+    public void setChecksumLedger(ChecksumLedger checksumLedger) {
+        this.checksumLedger = checksumLedger;
+    }
+
+    /**
+     * @return the journal that mutating personalized stream calls are recorded in, or null if there is none.
+     */
+    public MutationJournal getMutationJournal() {
+        return mutationJournal;
+    }
+
+    /**
+     * Sets a journal to record mutating personalized stream calls in before they are sent. Calls that
+     * were never answered can then be sent again with PersonalizedStream.replayMutations(). None is
+     * set by default.
+     * 
+     * @param mutationJournal the journal, or null for none.
+     */
+    public void setMutationJournal(MutationJournal mutationJournal) {
+        this.mutationJournal = mutationJournal;
+    }
+
+    /**
+     * @return the quill base url used instead of this network's, or null if there is none.
+     */
+    public String getQuillUrl() {
+        return quillUrl;
+    }
+
+    /**
+     * Sends quill calls to another base url, e.g. http://localhost:8080. Set to null to use the
+     * network's quill host again.
+     * 
+     * @param quillUrl the base url.
+     */
+    public void setQuillUrl(String quillUrl) {
+        this.quillUrl = quillUrl;
+        this.resolvedEndpoints = null;
+    }
+
+    /**
+     * @return the bootstrap base url used instead of this network's, or null if there is none.
+     */
+    public String getBootstrapUrl() {
+        return bootstrapUrl;
+    }
+
+    /**
+     * Sends bootstrap calls to another base url. Set to null to use the network's bootstrap host again.
+     * 
+     * @param bootstrapUrl the base url.
+     */
+    public void setBootstrapUrl(String bootstrapUrl) {
+        this.bootstrapUrl = bootstrapUrl;
+        this.resolvedEndpoints = null;
     }
 
     public NetworkData getData() {
@@ -163,9 +381,47 @@ public class Network implements LfCore {
     
     public void setData(NetworkData data) {
         this.data = data;
+        this.resolvedEndpoints = null;
     }
 
     /* Protected/private methods */
+
+    /*
+     * System tokens sent on this network's own API calls are cached. Tokens handed to callers only are
+     * when they ask for it with getCachedUserAuthToken().
+     */
+    private CachedToken cachedLivefyreToken() {
+        return cachedToken(DEFAULT_USER, DEFAULT_USER, DEFAULT_EXPIRES);
+    }
+
+    private CachedToken cachedToken(final String userId, final String displayName, final double expires) {
+        final String name = data.getName();
+        final String key = data.getKey();
+        return TOKEN_CACHE.get(Arrays.<Object>asList(name, key, userId, displayName, expires), expires, new Supplier<String>() {
+            public String get() {
+                return signUserAuthToken(name, key, userId, displayName, expires);
+            }
+        });
+    }
+
+    private void checkUserAuthParams(String userId, String displayName, Double expires) {
+        checkArgument(USER_ID_PATTERN.matcher(checkNotNull(userId)).find(),
+                "userId is not valid. be sure the userId matches the following pattern: %s", ALPHA_DASH_UNDER_DOT_REGEX);
+        checkNotNull(displayName);
+        checkNotNull(expires);
+    }
+
+    private String signUserAuthToken(String name, String key, String userId, String displayName, double expires) {
+        Map<String, Object> claims = ImmutableMap.<String, Object>of(
+                "domain", name,
+                "user_id", userId,
+                "display_name", displayName,
+                "expires", getExpiryInSeconds(expires)
+            );
+
+        return LivefyreUtil.serializeAndSign(claims, key);
+    }
+
     private long getExpiryInSeconds(double secTillExpire) {
         Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
         cal.add(Calendar.SECOND, (int) secTillExpire);
@@ -0,0 +1,17 @@
+package com.livefyre.core;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * An upsert waiting in a CollectionUpsertQueue. Only the latest collection submitted is sent.
+ */
+class PendingUpsert {
+    final String articleId;
+    final SettableFuture<String> result = SettableFuture.create();
+    Collection collection;
+    boolean ready;
+
+    PendingUpsert(String articleId) {
+        this.articleId = articleId;
+    }
+}
@@ -1,6 +1,7 @@
 package com.livefyre.core;
 
 import com.livefyre.model.SiteData;
+import com.livefyre.model.Urn;
 import com.livefyre.type.CollectionType;
 import com.livefyre.validator.ReflectiveValidator;
 
@@ -70,7 +71,11 @@ public class Site implements LfCore {
 
     /* Getters/Setters */
     public String getUrn() {
-        return network.getUrn() + ":site=" + data.getId();
+        return urn().toString();
+    }
+    
+    public Urn urn() {
+        return network.urn().site(data.getId());
     }
     
     public Network getNetwork() {
@@ -88,4 +93,26 @@ public class Site implements LfCore {
     public void setData(SiteData data) {
         this.data = data;
     }
+
+    /**
+     * Returns the queue that Collection.createOrUpdateLater() hands this site's upserts to. It is kept
+     * by the network and shared by every Site with this id.
+     * 
+     * @return CollectionUpsertQueue
+     */
+    public CollectionUpsertQueue getUpsertQueue() {
+        return network.getUpsertQueues().get(this);
+    }
+
+    /**
+     * Hands this site's upserts to another queue. The queue it replaces is shut down.
+     * 
+     * @param upsertQueue a queue for this site's id.
+     */
+    public void setUpsertQueue(CollectionUpsertQueue upsertQueue) {
+        if (!upsertQueue.getSiteId().equals(data.getId())) {
+            throw new IllegalArgumentException("The upsert queue belongs to another site.");
+        }
+        network.getUpsertQueues().put(upsertQueue);
+    }
 }
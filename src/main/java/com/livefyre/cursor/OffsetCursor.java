@@ -0,0 +1,147 @@
+package com.livefyre.cursor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.livefyre.exceptions.ApiException;
+
+/**
+ * OffsetCursor pages lazily through an endpoint that takes a limit and an offset, such as the topic
+ * and subscriber lists.
+ * 
+ * Iterating fetches page N+1 (up to prefetch pages ahead) in the background while page N is being
+ * consumed. Paging stops at the first page that comes back short or fails; pages already requested
+ * beyond it are cancelled. Each call to iterator() starts again from offset 0. Iterating over pages()
+ * instead lets a consumer that stops early cancel what was requested ahead.
+ */
+public abstract class OffsetCursor<T> implements Iterable<T> {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_PREFETCH = 1;
+
+    private final ListeningExecutorService executor;
+    private final int pageSize;
+    private final int prefetch;
+
+    /**
+     * @param executor the executor pages are fetched on.
+     * @param pageSize the number of items to request per page.
+     * @param prefetch how many pages to request ahead of the one being consumed.
+     */
+    public OffsetCursor(ListeningExecutorService executor, int pageSize, int prefetch) {
+        checkArgument(pageSize > 0, "pageSize must be positive");
+        checkArgument(prefetch >= 0, "prefetch cannot be negative");
+        this.executor = executor;
+        this.pageSize = pageSize;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Fetches a single page. Called from the executor.
+     * 
+     * @param limit the page size.
+     * @param offset the offset of the first item on the page.
+     * @return the items on the page.
+     */
+    protected abstract List<T> fetchPage(int limit, int offset);
+
+    public Iterator<T> iterator() {
+        return Iterators.concat(Iterators.transform(pages(0), new Function<List<T>, Iterator<T>>() {
+            public Iterator<T> apply(List<T> page) {
+                return page.iterator();
+            }
+        }));
+    }
+
+    /**
+     * Pages through the endpoint a page at a time, starting at an offset, e.g. to resume where an
+     * earlier run stopped. The last page may be short or empty. Close the returned iterator to stop
+     * early; the pages already requested are cancelled. They are also cancelled when a page fails.
+     * 
+     * @param startOffset the offset of the first item.
+     * @return the pages, in order.
+     */
+    public PageIterator<T> pages(int startOffset) {
+        checkArgument(startOffset >= 0, "startOffset cannot be negative");
+        return new PageIterator<T>(this, startOffset);
+    }
+
+    /**
+     * Iterates over an OffsetCursor's pages, fetching ahead in the background. See pages().
+     */
+    public static class PageIterator<T> extends AbstractIterator<List<T>> implements Closeable {
+        private final OffsetCursor<T> cursor;
+        private final Deque<Future<List<T>>> pending = new ArrayDeque<Future<List<T>>>();
+        private int nextOffset;
+        private boolean exhausted = false;
+
+        private PageIterator(OffsetCursor<T> cursor, int startOffset) {
+            this.cursor = cursor;
+            this.nextOffset = startOffset;
+        }
+
+        @Override
+        protected List<T> computeNext() {
+            if (exhausted) {
+                return endOfData();
+            }
+            while (pending.size() <= cursor.prefetch) {
+                final int offset = nextOffset;
+                pending.add(cursor.executor.submit(new Callable<List<T>>() {
+                    public List<T> call() {
+                        return cursor.fetchPage(cursor.pageSize, offset);
+                    }
+                }));
+                nextOffset += cursor.pageSize;
+            }
+
+            List<T> items;
+            try {
+                items = await(pending.poll());
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            if (items.size() < cursor.pageSize) {
+                close();
+            }
+            return items;
+        }
+
+        /**
+         * Stops paging and cancels the pages requested ahead. Iteration ends after the current page.
+         */
+        public void close() {
+            exhausted = true;
+            for (Future<List<T>> f : pending) {
+                f.cancel(true);
+            }
+            pending.clear();
+        }
+    }
+
+    private static <V> V await(Future<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted while waiting for a page.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ApiException(e.getCause());
+        }
+    }
+}
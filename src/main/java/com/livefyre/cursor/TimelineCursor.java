@@ -5,6 +5,7 @@ import java.util.Date;
 import com.google.gson.JsonObject;
 import com.livefyre.api.PersonalizedStream;
 import com.livefyre.core.LfCore;
+import com.livefyre.dto.TimelinePage;
 import com.livefyre.model.CursorData;
 import com.livefyre.validator.ReflectiveValidator;
 
@@ -60,6 +61,39 @@ public class TimelineCursor {
         }
         return responseData;
     }
+
+    /**
+     * Typed version of next(). Events are decoded lazily, as they are read, so prefer it to next()
+     * when only some events or fields are needed.
+     * 
+     * @return TimelinePage
+     */
+    public TimelinePage nextPage() {
+        TimelinePage page = PersonalizedStream.getTimelinePage(this, true);
+
+        data.setNext(page.hasNext());
+        data.setPrevious(page.getNextCursor() != null);
+        if (data.isPrevious()) {
+            data.setCursorTime(page.getNextCursor());
+        }
+        return page;
+    }
+
+    /**
+     * Typed version of previous(). Events are decoded lazily, as they are read.
+     * 
+     * @return TimelinePage
+     */
+    public TimelinePage previousPage() {
+        TimelinePage page = PersonalizedStream.getTimelinePage(this, false);
+
+        data.setPrevious(page.hasPrevious());
+        data.setNext(page.getPreviousCursor() != null);
+        if (data.isNext()) {
+            data.setCursorTime(page.getPreviousCursor());
+        }
+        return page;
+    }
     
     public LfCore getCore() {
         return core;
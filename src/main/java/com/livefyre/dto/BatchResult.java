@@ -0,0 +1,50 @@
+package com.livefyre.dto;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * The outcome of a batch call that was sent in chunks, e.g. PersonalizedStream.createOrUpdateTopicBatch().
+ * Chunks succeed or fail on their own; failed chunks can be retried with the ids they report.
+ */
+public class BatchResult<T> {
+    private final List<ChunkResult<T>> chunks;
+
+    public BatchResult(List<ChunkResult<T>> chunks) {
+        this.chunks = ImmutableList.copyOf(chunks);
+    }
+
+    /**
+     * @return the result of every chunk, in the order of the input.
+     */
+    public List<ChunkResult<T>> getChunks() {
+        return chunks;
+    }
+
+    public boolean isSuccess() {
+        return getFailures().isEmpty();
+    }
+
+    public List<ChunkResult<T>> getFailures() {
+        List<ChunkResult<T>> failures = Lists.newArrayList();
+        for (ChunkResult<T> chunk : chunks) {
+            if (!chunk.isSuccess()) {
+                failures.add(chunk);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * @return the topic ids of all failed chunks.
+     */
+    public List<String> getFailedIds() {
+        List<String> ids = Lists.newArrayList();
+        for (ChunkResult<T> chunk : getFailures()) {
+            ids.addAll(chunk.getIds());
+        }
+        return ids;
+    }
+}
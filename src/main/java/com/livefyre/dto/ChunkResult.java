@@ -0,0 +1,53 @@
+package com.livefyre.dto;
+
+import java.util.List;
+
+/**
+ * The outcome of one chunk of a batch call: the topic ids it covered and either its result or the
+ * error it failed with.
+ */
+public class ChunkResult<T> {
+    private final List<String> ids;
+    private final T result;
+    private final Throwable error;
+
+    private ChunkResult(List<String> ids, T result, Throwable error) {
+        this.ids = ids;
+        this.result = result;
+        this.error = error;
+    }
+
+    public static <T> ChunkResult<T> success(List<String> ids, T result) {
+        return new ChunkResult<T>(ids, result, null);
+    }
+
+    public static <T> ChunkResult<T> failure(List<String> ids, Throwable error) {
+        return new ChunkResult<T>(ids, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the ids of the chunk's topics, as given to the batch call: topic map keys for creates and
+     * the topics' ids for deletes.
+     */
+    public List<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * @return the chunk's result, or null if it failed.
+     */
+    public T getResult() {
+        return result;
+    }
+
+    /**
+     * @return the error the chunk failed with, e.g. an ApiException, or null if it succeeded.
+     */
+    public Throwable getError() {
+        return error;
+    }
+}
@@ -0,0 +1,37 @@
+package com.livefyre.dto;
+
+import java.util.List;
+
+/**
+ * The body of a request that sends a single named list, e.g. {"topics": [...]} or {"delete": [...]}.
+ * Serialized by EnvelopeTypeAdapterFactory.
+ */
+public class Envelope<T> {
+    private final String name;
+    private final List<T> items;
+
+    private Envelope(String name, List<T> items) {
+        this.name = name;
+        this.items = items;
+    }
+
+    public static Envelope<Topic> ofTopics(String name, List<Topic> topics) {
+        return new Envelope<Topic>(name, topics);
+    }
+
+    public static Envelope<String> ofIds(String name, List<String> ids) {
+        return new Envelope<String>(name, ids);
+    }
+
+    public static Envelope<Subscription> ofSubscriptions(String name, List<Subscription> subscriptions) {
+        return new Envelope<Subscription>(name, subscriptions);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+}
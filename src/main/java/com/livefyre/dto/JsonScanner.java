@@ -0,0 +1,226 @@
+package com.livefyre.dto;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import com.livefyre.factory.GsonFactory;
+
+/**
+ * Finds the boundaries of JSON values in a UTF-8 encoded document without decoding them, so that
+ * only the values that are actually read get turned into Java objects. A range is an int[] of
+ * {start, end}, end being exclusive.
+ */
+final class JsonScanner {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private final byte[] json;
+
+    JsonScanner(byte[] json) {
+        this.json = json;
+    }
+
+    /* Returns the range of the document's root value. */
+    int[] root() {
+        int start = skipWhitespace(0);
+        return new int[] { start, valueEnd(start) };
+    }
+
+    /* Returns the ranges of the members of the object in range, by name. */
+    Map<String, int[]> members(int[] range) {
+        Map<String, int[]> members = Maps.newLinkedHashMap();
+        int pos = expect(range[0], '{');
+        if (byteAt(pos) == '}') {
+            return members;
+        }
+        while (true) {
+            if (byteAt(pos) != '"') {
+                throw malformed(pos);
+            }
+            int nameEnd = stringEnd(pos);
+            String name = string(new int[] { pos, nameEnd });
+            int valueStart = expect(skipWhitespace(nameEnd), ':');
+            int valueEnd = valueEnd(valueStart);
+            members.put(name, new int[] { valueStart, valueEnd });
+
+            pos = skipWhitespace(valueEnd);
+            if (byteAt(pos) == '}') {
+                return members;
+            }
+            pos = expect(pos, ',');
+        }
+    }
+
+    /* Returns the ranges of the elements of the array in range. */
+    List<int[]> elements(int[] range) {
+        List<int[]> elements = Lists.newArrayList();
+        int pos = expect(range[0], '[');
+        if (byteAt(pos) == ']') {
+            return elements;
+        }
+        while (true) {
+            int end = valueEnd(pos);
+            elements.add(new int[] { pos, end });
+
+            pos = skipWhitespace(end);
+            if (byteAt(pos) == ']') {
+                return elements;
+            }
+            pos = expect(pos, ',');
+        }
+    }
+
+    boolean isNull(int[] range) {
+        return range == null || json[range[0]] == 'n';
+    }
+
+    boolean isObject(int[] range) {
+        return range != null && json[range[0]] == '{';
+    }
+
+    boolean isArray(int[] range) {
+        return range != null && json[range[0]] == '[';
+    }
+
+    Boolean bool(int[] range) {
+        return isNull(range) ? null : json[range[0]] == 't';
+    }
+
+    /* Strings are returned as is; other values as their JSON text. */
+    String string(int[] range) {
+        if (isNull(range)) {
+            return null;
+        }
+        int start = range[0];
+        int end = range[1];
+        if (json[start] != '"') {
+            return new String(json, start, end - start, UTF8);
+        }
+        for (int i = start + 1; i < end - 1; i++) {
+            if (json[i] == '\\') {
+                try {
+                    return reader(range).nextString();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return new String(json, start + 1, end - start - 2, UTF8);
+    }
+
+    /* Numbers, and strings holding numbers, as a Long. Fractions are truncated. */
+    Long number(int[] range) {
+        BigDecimal value = decimal(range);
+        return value == null ? null : value.longValue();
+    }
+
+    /* Numbers, and strings holding numbers, in any JSON number form, e.g. 1, -1.5 or 1.2e3. */
+    BigDecimal decimal(int[] range) {
+        if (isNull(range)) {
+            return null;
+        }
+        String value = json[range[0]] == '"' ? string(range)
+                : new String(json, range[0], range[1] - range[0], ASCII);
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Not a number at byte " + range[0] + ": " + value);
+        }
+    }
+
+    JsonElement element(int[] range) {
+        return GsonFactory.getGson().fromJson(reader(range), JsonElement.class);
+    }
+
+    private JsonReader reader(int[] range) {
+        JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(json, range[0], range[1] - range[0]), UTF8));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /* Returns the index just past the value that starts at pos. */
+    private int valueEnd(int pos) {
+        byte b = byteAt(pos);
+        if (b == '"') {
+            return stringEnd(pos);
+        }
+        if (b == '{' || b == '[') {
+            int depth = 0;
+            for (int i = pos; i < json.length; i++) {
+                byte c = json[i];
+                if (c == '"') {
+                    i = stringEnd(i) - 1;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    return i + 1;
+                }
+            }
+            throw malformed(pos);
+        }
+        int i = pos;
+        while (i < json.length && !isDelimiter(json[i])) {
+            i++;
+        }
+        if (i == pos) {
+            throw malformed(pos);
+        }
+        return i;
+    }
+
+    private int stringEnd(int pos) {
+        for (int i = pos + 1; i < json.length; i++) {
+            if (json[i] == '\\') {
+                i++;
+            } else if (json[i] == '"') {
+                return i + 1;
+            }
+        }
+        throw malformed(pos);
+    }
+
+    /* Checks that the next non-whitespace byte at pos is c, and returns the position after it and its whitespace. */
+    private int expect(int pos, char c) {
+        pos = skipWhitespace(pos);
+        if (byteAt(pos) != c) {
+            throw malformed(pos);
+        }
+        return skipWhitespace(pos + 1);
+    }
+
+    private int skipWhitespace(int pos) {
+        while (pos < json.length && isWhitespace(json[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private byte byteAt(int pos) {
+        if (pos >= json.length) {
+            throw malformed(pos);
+        }
+        return json[pos];
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == ',' || b == '}' || b == ']' || b == ':' || isWhitespace(b);
+    }
+
+    private static IllegalStateException malformed(int pos) {
+        return new IllegalStateException("Malformed JSON at byte " + pos);
+    }
+}
@@ -0,0 +1,69 @@
+package com.livefyre.dto;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.livefyre.core.Collection;
+
+/**
+ * What a CollectionTopicReconciler run did: how many collections were already in sync, how many were
+ * changed and how many topic assignments were added and removed, and why any collections failed.
+ */
+public class ReconcileResult {
+    private final int inSync;
+    private final int updated;
+    private final int added;
+    private final int removed;
+    private final Map<Collection, Throwable> failures;
+
+    public ReconcileResult(int inSync, int updated, int added, int removed, Map<Collection, Throwable> failures) {
+        this.inSync = inSync;
+        this.updated = updated;
+        this.added = added;
+        this.removed = removed;
+        this.failures = ImmutableMap.copyOf(failures);
+    }
+
+    /**
+     * @return the number of collections that already had the desired topics and were left alone.
+     */
+    public int getInSync() {
+        return inSync;
+    }
+
+    /**
+     * @return the number of collections whose topics were changed.
+     */
+    public int getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return the number of topic assignments added across all collections.
+     */
+    public int getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the number of topic assignments removed across all collections.
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    public int getFailed() {
+        return failures.size();
+    }
+
+    /**
+     * @return the collections that could not be reconciled, with the error each failed with.
+     */
+    public Map<Collection, Throwable> getFailures() {
+        return failures;
+    }
+
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+}
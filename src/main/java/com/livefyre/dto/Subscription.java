@@ -1,8 +1,12 @@
 package com.livefyre.dto;
 
+import java.io.IOException;
 import java.util.Date;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.livefyre.model.Urn;
 import com.livefyre.type.SubscriptionType;
 
 public class Subscription {
@@ -35,6 +39,35 @@ public class Subscription {
             json.get("createdAt").getAsInt());
     }
 
+    /* Reads a subscription from the reader, which must be positioned at the start of a subscription object. */
+    public static Subscription serializeFromJson(JsonReader reader) throws IOException {
+        Subscription subscription = new Subscription();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if ("to".equals(name)) {
+                subscription.to = Urn.canonicalize(reader.nextString());
+            } else if ("by".equals(name)) {
+                subscription.by = Urn.canonicalize(reader.nextString());
+            } else if ("type".equals(name)) {
+                String type = reader.nextString();
+                try {
+                    subscription.type = SubscriptionType.valueOf(type).toString();
+                } catch (IllegalArgumentException e) {
+                    subscription.type = SubscriptionType.fromNum(Integer.valueOf(type)).toString();
+                }
+            } else if ("createdAt".equals(name)) {
+                subscription.createdAt = reader.nextInt();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return subscription;
+    }
+
     public Date createdAtDate() {
         return new Date(createdAt.longValue() * 1000);
     }
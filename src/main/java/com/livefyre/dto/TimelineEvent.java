@@ -0,0 +1,113 @@
+package com.livefyre.dto;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Map;
+
+import com.google.gson.JsonObject;
+
+/**
+ * A single event of a TimelinePage. Events are views over the page's response bytes: the event's
+ * members are only located on first access, and each field is only decoded when it is read.
+ * 
+ * Not thread-safe.
+ */
+public class TimelineEvent {
+    private final JsonScanner scanner;
+    private final int[] range;
+    private Map<String, int[]> members;
+
+    TimelineEvent(JsonScanner scanner, int[] range) {
+        this.scanner = scanner;
+        this.range = range;
+    }
+
+    /* Convenience methods */
+    public String getType() {
+        return getString("type");
+    }
+
+    public String getResource() {
+        return getString("resource");
+    }
+
+    public String getContentId() {
+        return getString("contentId");
+    }
+
+    public String getCollectionId() {
+        return getString("collectionId");
+    }
+
+    public Long getCreatedAt() {
+        return getLong("createdAt");
+    }
+
+    public Long getUpdatedAt() {
+        return getLong("updatedAt");
+    }
+
+    public Date createdAtDate() {
+        Long createdAt = getCreatedAt();
+        return createdAt == null ? null : new Date(createdAt * 1000);
+    }
+
+    public Date updatedAtDate() {
+        Long updatedAt = getUpdatedAt();
+        return updatedAt == null ? null : new Date(updatedAt * 1000);
+    }
+
+    /* Field access */
+    public boolean has(String field) {
+        return members().containsKey(field);
+    }
+
+    /**
+     * Returns a field of the event as a string. Fields that are not strings are returned as their JSON text.
+     * 
+     * @param field the field name.
+     * @return String, or null if the field is absent or null.
+     */
+    public String getString(String field) {
+        return scanner.string(members().get(field));
+    }
+
+    /**
+     * Returns a numeric field of the event. Fractions are truncated.
+     * 
+     * @param field the field name.
+     * @return Long, or null if the field is absent or null.
+     * @throws IllegalStateException if the field is not a number.
+     */
+    public Long getLong(String field) {
+        return scanner.number(members().get(field));
+    }
+
+    /**
+     * Returns a numeric field of the event, e.g. one with a fraction or an exponent.
+     * 
+     * @param field the field name.
+     * @return Double, or null if the field is absent or null.
+     * @throws IllegalStateException if the field is not a number.
+     */
+    public Double getDouble(String field) {
+        BigDecimal value = scanner.decimal(members().get(field));
+        return value == null ? null : value.doubleValue();
+    }
+
+    /**
+     * Decodes the whole event.
+     * 
+     * @return JsonObject
+     */
+    public JsonObject toJson() {
+        return scanner.element(range).getAsJsonObject();
+    }
+
+    private Map<String, int[]> members() {
+        if (members == null) {
+            members = scanner.members(range);
+        }
+        return members;
+    }
+}
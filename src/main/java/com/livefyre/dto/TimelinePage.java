@@ -0,0 +1,130 @@
+package com.livefyre.dto;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+
+/**
+ * A page of the timeline API's response. Only the cursor information is decoded up front; events
+ * are located when first asked for and each TimelineEvent decodes its fields as they are read,
+ * straight from the response bytes.
+ * 
+ * Not thread-safe.
+ */
+public class TimelinePage {
+    private final JsonScanner scanner;
+    private final int[] root;
+    private final int[] timeline;
+    private final boolean hasNext;
+    private final boolean hasPrevious;
+    private final String nextCursor;
+    private final String previousCursor;
+    private List<TimelineEvent> events;
+
+    private TimelinePage(JsonScanner scanner) {
+        this.scanner = scanner;
+        this.root = scanner.root();
+
+        Map<String, int[]> members = scanner.members(root);
+        Map<String, int[]> cursor = object(object(members, "meta"), "cursor");
+        this.hasNext = Boolean.TRUE.equals(scanner.bool(cursor.get("hasNext")));
+        this.hasPrevious = Boolean.TRUE.equals(scanner.bool(cursor.get("hasPrev")));
+        this.nextCursor = scanner.string(cursor.get("next"));
+        this.previousCursor = scanner.string(cursor.get("prev"));
+
+        int[] timeline = object(members, "data").get("timeline");
+        this.timeline = scanner.isArray(timeline) ? timeline : null;
+    }
+
+    /**
+     * Reads a page from the body of a timeline API response.
+     * 
+     * @param body the UTF-8 encoded response.
+     * @return TimelinePage
+     * @throws IllegalStateException if the body is not a well-formed JSON object.
+     */
+    public static TimelinePage parse(byte[] body) {
+        return new TimelinePage(new JsonScanner(body));
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    public boolean hasPrevious() {
+        return hasPrevious;
+    }
+
+    /**
+     * @return the cursor time to continue forward from, or null if there is none.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return the cursor time to continue backward from, or null if there is none.
+     */
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    /**
+     * Returns the events of this page, in order. Events are not decoded until read.
+     * 
+     * @return List<TimelineEvent>
+     */
+    public List<TimelineEvent> getEvents() {
+        if (events == null) {
+            if (timeline == null) {
+                events = Collections.emptyList();
+            } else {
+                List<TimelineEvent> list = Lists.newArrayList();
+                for (int[] range : scanner.elements(timeline)) {
+                    list.add(new TimelineEvent(scanner, range));
+                }
+                events = Collections.unmodifiableList(list);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Returns the events of the given types. Only the type of the other events gets decoded.
+     * 
+     * @param types the event types to keep.
+     * @return List<TimelineEvent>
+     */
+    public List<TimelineEvent> getEvents(String... types) {
+        Set<String> wanted = ImmutableSet.copyOf(types);
+        List<TimelineEvent> matching = Lists.newArrayList();
+        for (TimelineEvent event : getEvents()) {
+            if (wanted.contains(event.getType())) {
+                matching.add(event);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Decodes the whole page, as returned by TimelineCursor.next() and previous().
+     * 
+     * @return JsonObject
+     */
+    public JsonObject toJson() {
+        return scanner.element(root).getAsJsonObject();
+    }
+
+    private Map<String, int[]> object(Map<String, int[]> members, String name) {
+        int[] range = members.get(name);
+        if (!scanner.isObject(range)) {
+            return Collections.emptyMap();
+        }
+        return scanner.members(range);
+    }
+}
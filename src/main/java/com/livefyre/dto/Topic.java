@@ -1,9 +1,14 @@
 package com.livefyre.dto;
 
+import java.io.IOException;
 import java.util.Date;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.livefyre.core.LfCore;
+import com.livefyre.model.Urn;
+import com.livefyre.utils.LivefyreUtil;
 
 public class Topic {
     private static final String TOPIC_IDENTIFIER = ":topic=";
@@ -27,7 +32,7 @@ public class Topic {
     }
     
     public static String generateUrn(LfCore core, String id) {
-        return core.getUrn() + TOPIC_IDENTIFIER + id;
+        return LivefyreUtil.getUrnFromCore(core).topic(id).toString();
     }
 
     public static Topic serializeFromJson(JsonObject json) {
@@ -38,10 +43,54 @@ public class Topic {
             json.get("modifiedAt").getAsInt());
     }
     
+    /* Reads a topic from the reader, which must be positioned at the start of a topic object. */
+    public static Topic serializeFromJson(JsonReader reader) throws IOException {
+        Topic topic = new Topic();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if ("id".equals(name)) {
+                topic.id = Urn.canonicalize(reader.nextString());
+            } else if ("label".equals(name)) {
+                topic.label = reader.nextString();
+            } else if ("createdAt".equals(name)) {
+                topic.createdAt = reader.nextInt();
+            } else if ("modifiedAt".equals(name)) {
+                topic.modifiedAt = reader.nextInt();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return topic;
+    }
+    
     public String truncatedId() {
+        Urn urn = urn();
+        if (urn != null && urn.isTopic()) {
+            return urn.getTopic();
+        }
         return id.substring(id.indexOf(TOPIC_IDENTIFIER) + TOPIC_IDENTIFIER.length());
     }
 
+    /**
+     * Returns the parsed id of this topic.
+     * 
+     * @return Urn, or null if the id is not a Livefyre urn.
+     */
+    public Urn urn() {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return Urn.parse(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public Date createdAtDate() {
         return new Date(createdAt.longValue() * 1000);
     }
@@ -0,0 +1,29 @@
+package com.livefyre.factory;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.livefyre.adapter.EnvelopeTypeAdapterFactory;
+import com.livefyre.adapter.SubscriptionTypeAdapter;
+import com.livefyre.adapter.TopicTypeAdapter;
+import com.livefyre.dto.Subscription;
+import com.livefyre.dto.Topic;
+
+/**
+ * Holds the Gson instance shared by the whole library. Gson is thread-safe, so there is no need to
+ * create one per call. Apart from the registered adapters it uses Gson's defaults (including HTML
+ * escaping), so its output matches that of new Gson().
+ */
+public class GsonFactory {
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Topic.class, new TopicTypeAdapter())
+            .registerTypeAdapter(Subscription.class, new SubscriptionTypeAdapter())
+            .registerTypeAdapterFactory(new EnvelopeTypeAdapterFactory())
+            .create();
+
+    /* Private constructor to prevent instantiation. */
+    private GsonFactory() { }
+
+    public static Gson getGson() {
+        return GSON;
+    }
+}
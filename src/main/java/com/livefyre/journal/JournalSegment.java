@@ -0,0 +1,31 @@
+package com.livefyre.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * One file of a MappedMutationJournal, mapped as a whole. Tracks how many of the calls recorded in
+ * it are still unacknowledged.
+ */
+class JournalSegment {
+    final long index;
+    final File file;
+    final MappedByteBuffer buffer;
+    private final RandomAccessFile raf;
+    int position;
+    int pending;
+
+    JournalSegment(long index, File file, int size) throws IOException {
+        this.index = index;
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "rw");
+        this.buffer = raf.getChannel().map(MapMode.READ_WRITE, 0, size);
+    }
+
+    void close() throws IOException {
+        raf.close();
+    }
+}
@@ -0,0 +1,305 @@
+package com.livefyre.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.livefyre.exceptions.LivefyreException;
+
+/**
+ * A MutationJournal kept in a directory of memory-mapped segment files. Each call is appended to the
+ * current segment and forced to disk before record() returns; callers that record at the same time
+ * share one force, so the cost of a sync is spread over everything recorded while it ran.
+ * 
+ * Acknowledgements are appended but not forced. After a crash a call may therefore be replayed even
+ * though it was answered. That is not always harmless: adding or removing collection topics and
+ * subscriptions and deleting topics are deltas sent as PATCH, and replaying one can undo a later
+ * change to the same topics. Check pending() before replaying if that matters. Segments are deleted
+ * once every call in them and in older segments has been acknowledged.
+ * 
+ * Journals hold the user tokens of subscription calls, so the directory should be as private as the
+ * tokens. A directory must not be opened by more than one journal at a time.
+ */
+public class MappedMutationJournal implements MutationJournal, Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+
+    private static final int MAGIC = 0x4c464a4c;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    /* Records are the payload length, a CRC32 of type, id and payload, then the type, id and payload. */
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte ENTRY = 1;
+    private static final byte ACK = 2;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final int segmentSize;
+    private final Object syncLock = new Object();
+    private final Deque<JournalSegment> segments = new ArrayDeque<JournalSegment>();
+    private final Map<Long, Mutation> pending = new LinkedHashMap<Long, Mutation>();
+    private final Map<Long, JournalSegment> pendingSegments = new HashMap<Long, JournalSegment>();
+    private JournalSegment active;
+    private long nextId = 1;
+    private boolean closed;
+    /* The last id known to be on disk. Guarded by syncLock. */
+    private long synced;
+
+    private MappedMutationJournal(File directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create journal directory " + directory);
+        }
+        String[] names = directory.list();
+        Arrays.sort(names);
+        long lastIndex = 0;
+        for (String name : names) {
+            if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                File file = new File(directory, name);
+                lastIndex = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+                JournalSegment segment = new JournalSegment(lastIndex, file, (int) file.length());
+                segments.add(segment);
+                load(segment);
+            }
+        }
+        synced = nextId - 1;
+        // new calls always go to a new segment, so nothing is ever written after a torn record.
+        roll(lastIndex + 1, 0);
+        deleteAcknowledged();
+    }
+
+    /**
+     * Opens the journal in directory, creating it if needed. Calls recorded by earlier runs and never
+     * acknowledged are available from pending().
+     * 
+     * @param directory the journal's directory.
+     * @return MappedMutationJournal
+     * @throws IOException if the journal cannot be read or mapped.
+     */
+    public static MappedMutationJournal open(File directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory the journal's directory.
+     * @param segmentSize the size of each segment file in bytes. Calls larger than that get a segment of their own.
+     * @return MappedMutationJournal
+     * @throws IOException if the journal cannot be read or mapped.
+     */
+    public static MappedMutationJournal open(File directory, int segmentSize) throws IOException {
+        return new MappedMutationJournal(directory, segmentSize);
+    }
+
+    public long record(Mutation mutation) {
+        byte[] payload = encode(mutation);
+        long id;
+        synchronized (this) {
+            checkOpen();
+            id = nextId++;
+            append(ENTRY, id, payload);
+            pending.put(id, mutation);
+            pendingSegments.put(id, active);
+            active.pending++;
+        }
+        sync(id);
+        return id;
+    }
+
+    public synchronized void acknowledge(long id) {
+        checkOpen();
+        if (pending.remove(id) == null) {
+            return;
+        }
+        append(ACK, id, new byte[0]);
+        pendingSegments.remove(id).pending--;
+        deleteAcknowledged();
+    }
+
+    public synchronized Map<Long, Mutation> pending() {
+        return new LinkedHashMap<Long, Mutation>(pending);
+    }
+
+    /**
+     * @return the number of segment files.
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        active.buffer.force();
+        for (JournalSegment segment : segments) {
+            segment.close();
+        }
+    }
+
+    /*
+     * Group commit: whoever gets the sync lock forces everything appended so far, and callers whose
+     * record was covered by that force return without forcing again.
+     */
+    private void sync(long id) {
+        synchronized (syncLock) {
+            if (synced >= id) {
+                return;
+            }
+            long target;
+            MappedByteBuffer buffer;
+            synchronized (this) {
+                target = nextId - 1;
+                buffer = active.buffer;
+            }
+            buffer.force();
+            synced = target;
+        }
+    }
+
+    private void append(byte type, long id, byte[] payload) {
+        int length = 1 + 8 + payload.length;
+        if (active.position + RECORD_HEADER_SIZE + length > active.buffer.capacity()) {
+            roll(active.index + 1, RECORD_HEADER_SIZE + length);
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        record.position(RECORD_HEADER_SIZE);
+        record.put(type).putLong(id).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_SIZE, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+
+        active.buffer.position(active.position);
+        active.buffer.put(record.array());
+        active.position += record.capacity();
+    }
+
+    /* Older segments are forced before a new one is started, so sync() only needs to force the active one. */
+    private void roll(long index, int needed) {
+        try {
+            if (active != null) {
+                active.buffer.force();
+            }
+            File file = new File(directory, String.format("%s%016d%s", PREFIX, index, SUFFIX));
+            JournalSegment segment = new JournalSegment(index, file, Math.max(segmentSize, HEADER_SIZE + needed));
+            segment.buffer.putInt(0, MAGIC).putInt(4, VERSION);
+            segment.position = HEADER_SIZE;
+            segments.add(segment);
+            active = segment;
+        } catch (IOException e) {
+            throw new LivefyreException("Could not start a new journal segment in " + directory, e);
+        }
+    }
+
+    /* Reads records up to the first one that is missing or torn. */
+    private void load(JournalSegment segment) throws IOException {
+        ByteBuffer buffer = segment.buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(segment.file + " is not a version " + VERSION + " journal segment");
+        }
+        int pos = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (pos + RECORD_HEADER_SIZE + 9 <= buffer.capacity()) {
+            int length = buffer.getInt(pos);
+            if (length < 9 || length > buffer.capacity() - pos - RECORD_HEADER_SIZE) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.position(pos + RECORD_HEADER_SIZE);
+            buffer.get(record);
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != buffer.getInt(pos + 4)) {
+                break;
+            }
+            ByteBuffer in = ByteBuffer.wrap(record);
+            byte type = in.get();
+            long id = in.getLong();
+            if (type == ENTRY) {
+                pending.put(id, decode(in));
+                pendingSegments.put(id, segment);
+                segment.pending++;
+            } else if (pending.remove(id) != null) {
+                pendingSegments.remove(id).pending--;
+            }
+            nextId = Math.max(nextId, id + 1);
+            pos += RECORD_HEADER_SIZE + length;
+        }
+        segment.position = pos;
+    }
+
+    private void deleteAcknowledged() {
+        while (segments.peekFirst() != active && segments.peekFirst().pending == 0) {
+            JournalSegment segment = segments.removeFirst();
+            try {
+                segment.close();
+            } catch (IOException e) {
+                throw new LivefyreException("Could not close journal segment " + segment.file, e);
+            }
+            segment.file.delete();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new LivefyreException("This journal has been closed.");
+        }
+    }
+
+    private static byte[] encode(Mutation mutation) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            writeString(out, mutation.getMethod());
+            writeString(out, mutation.getPath());
+            out.writeBoolean(mutation.isPatch());
+            writeString(out, mutation.getBody());
+            writeString(out, mutation.getUserToken());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Mutation decode(ByteBuffer in) {
+        String method = readString(in);
+        String path = readString(in);
+        boolean patch = in.get() != 0;
+        String body = readString(in);
+        return new Mutation(method, path, patch, body, readString(in));
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String s = new String(in.array(), in.position(), length, UTF8);
+        in.position(in.position() + length);
+        return s;
+    }
+}
@@ -0,0 +1,48 @@
+package com.livefyre.journal;
+
+/**
+ * A mutating personalized stream call, as recorded in a MutationJournal: everything needed to send
+ * it again. The path is relative to the network's personalized stream base url.
+ */
+public class Mutation {
+    private final String method;
+    private final String path;
+    private final boolean patch;
+    private final String body;
+    private final String userToken;
+
+    /**
+     * @param method the HTTP method, POST or PUT.
+     * @param path the path below the personalized stream base url.
+     * @param patch whether the call is a POST that stands in for a PATCH.
+     * @param body the JSON body.
+     * @param userToken the user token the call is made with, or null for the network's.
+     */
+    public Mutation(String method, String path, boolean patch, String body, String userToken) {
+        this.method = method;
+        this.path = path;
+        this.patch = patch;
+        this.body = body;
+        this.userToken = userToken;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isPatch() {
+        return patch;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String getUserToken() {
+        return userToken;
+    }
+}
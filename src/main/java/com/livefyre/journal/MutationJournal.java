@@ -0,0 +1,33 @@
+package com.livefyre.journal;
+
+import java.util.Map;
+
+/**
+ * A MutationJournal records each mutating personalized stream call before it is sent and is told
+ * once the call's outcome, answer or failure, has reached the caller. When a Network has one, calls
+ * that were cut off, e.g. because the process died, can be sent again with
+ * PersonalizedStream.replayMutations().
+ * 
+ * Implementations must be thread-safe.
+ */
+public interface MutationJournal {
+    /**
+     * Records a call that is about to be sent. Returns once the record is durable.
+     * 
+     * @param mutation the call.
+     * @return the id to acknowledge the call with.
+     */
+    public long record(Mutation mutation);
+
+    /**
+     * Records that a call is done with, so that it is not sent again.
+     * 
+     * @param id the id record() returned.
+     */
+    public void acknowledge(long id);
+
+    /**
+     * @return the calls that were recorded but not acknowledged, by id, oldest first.
+     */
+    public Map<Long, Mutation> pending();
+}
@@ -0,0 +1,26 @@
+package com.livefyre.ledger;
+
+/**
+ * A ChecksumLedger records, per site and articleId, the collection id and checksum of the last
+ * successful createOrUpdate(). When a Network has one, createOrUpdate() skips the API call for
+ * collections whose checksum has not changed since.
+ * 
+ * Implementations must be thread-safe.
+ */
+public interface ChecksumLedger {
+    /**
+     * @param siteId the id of the collection's site.
+     * @param articleId the collection's articleId.
+     * @return the last acknowledged entry, or null if there is none.
+     */
+    public LedgerEntry get(String siteId, String articleId);
+
+    /**
+     * Records a successful upsert.
+     * 
+     * @param siteId the id of the collection's site.
+     * @param articleId the collection's articleId.
+     * @param entry the collection id and the checksum that was sent.
+     */
+    public void put(String siteId, String articleId, LedgerEntry entry);
+}
@@ -0,0 +1,128 @@
+package com.livefyre.ledger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.livefyre.exceptions.LivefyreException;
+
+/**
+ * A ChecksumLedger that survives restarts. Entries are kept on the heap and every change is appended
+ * to a file, which is read back when the ledger is opened. A record cut short by a crash is dropped.
+ * The file is rewritten without superseded records when it is opened with more than twice as many
+ * records as entries.
+ * 
+ * Records are flushed to the operating system as they are written, but not forced to disk.
+ */
+public class FileChecksumLedger implements ChecksumLedger, Closeable {
+    private final File file;
+    private final InMemoryChecksumLedger entries = new InMemoryChecksumLedger();
+    private DataOutputStream out;
+
+    /**
+     * Opens the ledger stored in file, creating the file if needed.
+     * 
+     * @param file the ledger's file.
+     * @throws IOException if the file cannot be read or written.
+     */
+    public FileChecksumLedger(File file) throws IOException {
+        this.file = file;
+        Map<List<String>, LedgerEntry> records = Maps.newLinkedHashMap();
+        int count = load(records);
+        if (count > 2 * entries.size()) {
+            compact(records);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    public LedgerEntry get(String siteId, String articleId) {
+        return entries.get(siteId, articleId);
+    }
+
+    public synchronized void put(String siteId, String articleId, LedgerEntry entry) {
+        if (entry.equals(entries.get(siteId, articleId))) {
+            return;
+        }
+        try {
+            writeRecord(out, siteId, articleId, entry);
+            out.flush();
+        } catch (IOException e) {
+            throw new LivefyreException("Could not write to checksum ledger " + file, e);
+        }
+        entries.put(siteId, articleId, entry);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    /*
+     * Reads all complete records, and cuts off the rest from the first one that cannot be read, whether it
+     * ends early or holds bytes that never made it to disk intact. Returns the number of records read.
+     */
+    private int load(Map<List<String>, LedgerEntry> latest) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        byte[] bytes = Files.toByteArray(file);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int count = 0;
+        int end = 0;
+        try {
+            while (in.available() > 0) {
+                String siteId = in.readUTF();
+                String articleId = in.readUTF();
+                LedgerEntry entry = new LedgerEntry(in.readUTF(), in.readUTF());
+                entries.put(siteId, articleId, entry);
+                latest.put(Arrays.asList(siteId, articleId), entry);
+                count++;
+                end = bytes.length - in.available();
+            }
+        } catch (IOException e) {
+            // reading from memory only fails on a malformed record: EOFException or UTFDataFormatException.
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(end);
+            } finally {
+                raf.close();
+            }
+        }
+        return count;
+    }
+
+    private void compact(Map<List<String>, LedgerEntry> latest) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream compacted = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            for (Map.Entry<List<String>, LedgerEntry> record : latest.entrySet()) {
+                writeRecord(compacted, record.getKey().get(0), record.getKey().get(1), record.getValue());
+            }
+        } finally {
+            compacted.close();
+        }
+        Files.move(tmp, file);
+    }
+
+    private static void writeRecord(DataOutputStream out, String siteId, String articleId, LedgerEntry entry)
+            throws IOException {
+        out.writeUTF(siteId);
+        out.writeUTF(articleId);
+        out.writeUTF(entry.getCollectionId());
+        out.writeUTF(entry.getChecksum());
+    }
+}
@@ -0,0 +1,28 @@
+package com.livefyre.ledger;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A ChecksumLedger that lives on the heap, for the lifetime of the process.
+ */
+public class InMemoryChecksumLedger implements ChecksumLedger {
+    private final Map<Object, LedgerEntry> entries = new ConcurrentHashMap<Object, LedgerEntry>();
+
+    public LedgerEntry get(String siteId, String articleId) {
+        return entries.get(key(siteId, articleId));
+    }
+
+    public void put(String siteId, String articleId, LedgerEntry entry) {
+        entries.put(key(siteId, articleId), entry);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static Object key(String siteId, String articleId) {
+        return Arrays.asList(siteId, articleId);
+    }
+}
@@ -0,0 +1,39 @@
+package com.livefyre.ledger;
+
+/**
+ * What a ChecksumLedger knows about a collection: its id and the checksum Livefyre last acknowledged.
+ */
+public class LedgerEntry {
+    private final String collectionId;
+    private final String checksum;
+
+    public LedgerEntry(String collectionId, String checksum) {
+        this.collectionId = collectionId;
+        this.checksum = checksum;
+    }
+
+    public String getCollectionId() {
+        return collectionId;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * collectionId.hashCode() + checksum.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LedgerEntry)) {
+            return false;
+        }
+        LedgerEntry other = (LedgerEntry) obj;
+        return collectionId.equals(other.collectionId) && checksum.equals(other.checksum);
+    }
+}
@@ -0,0 +1,360 @@
+package com.livefyre.ledger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.io.Files;
+import com.livefyre.exceptions.LivefyreException;
+
+/**
+ * A ChecksumLedger kept in a memory-mapped file: an open-addressing hash table from (siteId, articleId)
+ * to collection id and checksum. Entries live in the file rather than on the heap, so an index can
+ * hold tens of millions of them, and opening one only maps the file; nothing is read up front.
+ *
+ * The file starts with a header, followed by a table of slots and then the records the slots point
+ * to. Updating an entry appends a new record and repoints its slot; superseded records are dropped
+ * when the table is grown. Changes reach the file through the mapping and are forced to disk on close.
+ *
+ * Use open() for an index that upserts are recorded in and openReadOnly() to only look ids up, e.g.
+ * at startup. An index file must not be opened for writing by more than one process at a time.
+ */
+public class MappedCollectionIndex implements ChecksumLedger, Closeable {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int MAGIC = 0x4c464349;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final double MAX_LOAD = 0.7;
+    private static final int MAX_FIELD_LENGTH = 0xffff;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /* Header layout */
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 12;
+    private static final int DATA_END_OFFSET = 16;
+
+    private final File file;
+    private final boolean readOnly;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer[] chunks;
+    private long mappedLength;
+    private int capacity;
+    private int size;
+    private long dataEnd;
+
+    private MappedCollectionIndex(File file, boolean readOnly, int initialCapacity) throws IOException {
+        this.file = file;
+        this.readOnly = readOnly;
+        boolean exists = file.exists() && file.length() >= HEADER_SIZE;
+        if (readOnly && !exists) {
+            throw new IOException("No collection index at " + file);
+        }
+        raf = new RandomAccessFile(file, readOnly ? "r" : "rw");
+        channel = raf.getChannel();
+        if (exists) {
+            map(channel.size());
+            if (getInt(MAGIC_OFFSET) != MAGIC || getInt(VERSION_OFFSET) != VERSION) {
+                close();
+                throw new IOException(file + " is not a version " + VERSION + " collection index");
+            }
+            capacity = getInt(CAPACITY_OFFSET);
+            size = getInt(SIZE_OFFSET);
+            dataEnd = getLong(DATA_END_OFFSET);
+        } else {
+            capacity = Integer.highestOneBit(Math.max(16, initialCapacity) - 1) << 1;
+            dataEnd = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+            map(dataEnd + 4096);
+            putInt(MAGIC_OFFSET, MAGIC);
+            putInt(VERSION_OFFSET, VERSION);
+            putInt(CAPACITY_OFFSET, capacity);
+            putInt(SIZE_OFFSET, 0);
+            putLong(DATA_END_OFFSET, dataEnd);
+        }
+    }
+
+    /**
+     * Opens the index stored in file for reading and writing, creating it if needed.
+     *
+     * @param file the index's file.
+     * @return MappedCollectionIndex
+     * @throws IOException if the file cannot be mapped or is not an index.
+     */
+    public static MappedCollectionIndex open(File file) throws IOException {
+        return open(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param file the index's file.
+     * @param expectedEntries sizes a new index so that it need not grow until this many entries are added.
+     * @return MappedCollectionIndex
+     * @throws IOException if the file cannot be mapped or is not an index.
+     */
+    public static MappedCollectionIndex open(File file, int expectedEntries) throws IOException {
+        return new MappedCollectionIndex(file, false, (int) Math.min(1 << 30, (long) (expectedEntries / MAX_LOAD) + 1));
+    }
+
+    /**
+     * Opens an existing index for lookups only. put() does nothing on such an index, so it can be
+     * handed to Network.setChecksumLedger() without upserts failing; they are just not recorded.
+     *
+     * @param file the index's file.
+     * @return MappedCollectionIndex
+     * @throws IOException if there is no index at file.
+     */
+    public static MappedCollectionIndex openReadOnly(File file) throws IOException {
+        return new MappedCollectionIndex(file, true, 0);
+    }
+
+    public LedgerEntry get(String siteId, String articleId) {
+        lock.readLock().lock();
+        try {
+            long offset = find(hash(siteId, articleId), siteId, articleId);
+            if (offset < 0) {
+                return null;
+            }
+            long record = getLong(offset + 8);
+            int siteLength = getShort(record);
+            int articleLength = getShort(record + 2 + siteLength);
+            long idStart = record + 4 + siteLength + articleLength;
+            int idLength = getShort(idStart);
+            int checksumLength = getShort(idStart + 2 + idLength);
+            return new LedgerEntry(getString(idStart + 2, idLength), getString(idStart + 4 + idLength, checksumLength));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(String siteId, String articleId, LedgerEntry entry) {
+        if (readOnly) {
+            return;
+        }
+        byte[][] fields = {
+            siteId.getBytes(UTF8), articleId.getBytes(UTF8),
+            entry.getCollectionId().getBytes(UTF8), entry.getChecksum().getBytes(UTF8) };
+        int recordLength = 0;
+        for (byte[] field : fields) {
+            if (field.length > MAX_FIELD_LENGTH) {
+                throw new IllegalArgumentException("Collection index fields are limited to " + MAX_FIELD_LENGTH + " bytes.");
+            }
+            recordLength += 2 + field.length;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (entry.equals(get(siteId, articleId))) {
+                return;
+            }
+            if (size + 1 > capacity * MAX_LOAD) {
+                grow();
+            }
+            long hash = hash(siteId, articleId);
+            long slot = find(hash, siteId, articleId);
+            boolean added = slot < 0;
+            if (added) {
+                slot = -slot - 1;
+            }
+
+            long record = append(fields, recordLength);
+            putLong(slot + 8, record);
+            putLong(slot, hash);
+            if (added) {
+                putInt(SIZE_OFFSET, ++size);
+            }
+        } catch (IOException e) {
+            throw new LivefyreException("Could not write to collection index " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (chunks != null && !readOnly) {
+                for (MappedByteBuffer chunk : chunks) {
+                    chunk.force();
+                }
+            }
+            chunks = null;
+            if (raf != null) {
+                raf.close();
+                raf = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Returns the offset of the slot holding the key, or -(offset + 1) of the empty slot it would go in.
+     */
+    private long find(long hash, String siteId, String articleId) {
+        int mask = capacity - 1;
+        for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+            long slot = HEADER_SIZE + (long) i * SLOT_SIZE;
+            long slotHash = getLong(slot);
+            if (slotHash == 0) {
+                return -slot - 1;
+            }
+            if (slotHash == hash && keyEquals(getLong(slot + 8), siteId, articleId)) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean keyEquals(long record, String siteId, String articleId) {
+        int siteLength = getShort(record);
+        if (!getString(record + 2, siteLength).equals(siteId)) {
+            return false;
+        }
+        int articleLength = getShort(record + 2 + siteLength);
+        return getString(record + 4 + siteLength, articleLength).equals(articleId);
+    }
+
+    /* Records never straddle two chunks, so that each can be read from a single buffer. */
+    private long append(byte[][] fields, int recordLength) throws IOException {
+        long record = dataEnd;
+        if ((record >>> CHUNK_BITS) != ((record + recordLength - 1) >>> CHUNK_BITS)) {
+            record = ((record >>> CHUNK_BITS) + 1) << CHUNK_BITS;
+        }
+        if (record + recordLength > mappedLength) {
+            map(Math.max(record + recordLength, mappedLength * 2));
+        }
+        long pos = record;
+        for (byte[] field : fields) {
+            putShort(pos, field.length);
+            if (field.length > 0) {
+                MappedByteBuffer chunk = chunk(pos + 2);
+                chunk.position(offsetInChunk(pos + 2));
+                chunk.put(field);
+            }
+            pos += 2 + field.length;
+        }
+        dataEnd = pos;
+        putLong(DATA_END_OFFSET, dataEnd);
+        return record;
+    }
+
+    /* Rewrites the index with twice the slots and without superseded records, then switches to it. */
+    private void grow() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        tmp.delete();
+        MappedCollectionIndex grown = new MappedCollectionIndex(tmp, false, capacity * 2);
+        for (int i = 0; i < capacity; i++) {
+            long slot = HEADER_SIZE + (long) i * SLOT_SIZE;
+            if (getLong(slot) == 0) {
+                continue;
+            }
+            long record = getLong(slot + 8);
+            int siteLength = getShort(record);
+            int articleLength = getShort(record + 2 + siteLength);
+            String siteId = getString(record + 2, siteLength);
+            String articleId = getString(record + 4 + siteLength, articleLength);
+            grown.put(siteId, articleId, get(siteId, articleId));
+        }
+        grown.close();
+        close();
+        Files.move(tmp, file);
+
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        map(channel.size());
+        capacity = getInt(CAPACITY_OFFSET);
+        size = getInt(SIZE_OFFSET);
+        dataEnd = getLong(DATA_END_OFFSET);
+    }
+
+    private void map(long length) throws IOException {
+        int count = (int) ((length + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << CHUNK_BITS;
+            mapped[i] = channel.map(readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE, start,
+                    Math.min(CHUNK_SIZE, length - start));
+        }
+        chunks = mapped;
+        mappedLength = length;
+    }
+
+    private MappedByteBuffer chunk(long offset) {
+        return chunks[(int) (offset >>> CHUNK_BITS)];
+    }
+
+    private static int offsetInChunk(long offset) {
+        return (int) (offset & (CHUNK_SIZE - 1));
+    }
+
+    private int getInt(long offset) {
+        return chunk(offset).getInt(offsetInChunk(offset));
+    }
+
+    private void putInt(long offset, int value) {
+        chunk(offset).putInt(offsetInChunk(offset), value);
+    }
+
+    private long getLong(long offset) {
+        return chunk(offset).getLong(offsetInChunk(offset));
+    }
+
+    private void putLong(long offset, long value) {
+        chunk(offset).putLong(offsetInChunk(offset), value);
+    }
+
+    private int getShort(long offset) {
+        return chunk(offset).getShort(offsetInChunk(offset)) & 0xffff;
+    }
+
+    private void putShort(long offset, int value) {
+        chunk(offset).putShort(offsetInChunk(offset), (short) value);
+    }
+
+    private String getString(long offset, int length) {
+        byte[] bytes = new byte[length];
+        MappedByteBuffer chunk = chunk(offset);
+        int start = offsetInChunk(offset);
+        for (int i = 0; i < length; i++) {
+            bytes[i] = chunk.get(start + i);
+        }
+        return new String(bytes, UTF8);
+    }
+
+    /* 64-bit FNV-1a over both keys, with a final mix. Never 0, which marks an empty slot. */
+    private static long hash(String siteId, String articleId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < siteId.length(); i++) {
+            h = (h ^ siteId.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ 0xffff) * 0x100000001b3L;
+        for (int i = 0; i < articleId.length(); i++) {
+            h = (h ^ articleId.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+}
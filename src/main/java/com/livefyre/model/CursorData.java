@@ -1,24 +1,23 @@
 package com.livefyre.model;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.TimeZone;
+
+import com.livefyre.utils.Iso8601;
 
 public class CursorData {
-    protected static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-    
     private String resource;
     private String cursorTime;
+    private Long cursorTimeMillis;
     private Boolean next = false;
     private Boolean previous = false;
     private Integer limit;
     
     public CursorData(String resource, Integer limit, Date startTime) {
-        DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
         this.resource = resource;
         this.limit = limit;
-        this.cursorTime = startTime == null ? null: DATE_FORMAT.format(startTime);
+        if (startTime != null) {
+            setCursorTimeMillis(startTime.getTime());
+        }
     }
 
     public String getResource() {
@@ -30,17 +29,51 @@ public class CursorData {
         return this;
     }
 
+    /**
+     * Returns the cursor position as an ISO-8601 UTC timestamp, as sent to Livefyre. The string is
+     * only formatted when the position changes.
+     * 
+     * @return String
+     */
     public String getCursorTime() {
         return cursorTime;
     }
 
+    /**
+     * Sets the cursor position from an ISO-8601 UTC timestamp, such as the ones returned by the
+     * timeline API. The string is kept as is; if it cannot be parsed, getCursorTimeMillis() returns null.
+     * 
+     * @param newTime the new cursor position.
+     * @return this
+     */
     public CursorData setCursorTime(String newTime) {
         this.cursorTime = newTime;
+        Long millis = null;
+        if (newTime != null) {
+            try {
+                millis = Iso8601.parse(newTime);
+            } catch (IllegalArgumentException e) {
+                // not a timestamp we recognize. send it back as is.
+            }
+        }
+        this.cursorTimeMillis = millis;
         return this;
     }
 
     public CursorData setCursorTime(Date newTime) {
-        this.cursorTime = DATE_FORMAT.format(newTime);
+        return setCursorTimeMillis(newTime.getTime());
+    }
+
+    /**
+     * @return the cursor position in milliseconds since the epoch.
+     */
+    public Long getCursorTimeMillis() {
+        return cursorTimeMillis;
+    }
+
+    public CursorData setCursorTimeMillis(Long newTimeMillis) {
+        this.cursorTimeMillis = newTimeMillis;
+        this.cursorTime = newTimeMillis == null ? null : Iso8601.format(newTimeMillis);
         return this;
     }
 
@@ -0,0 +1,252 @@
+package com.livefyre.model;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * An immutable Livefyre URN, e.g. urn:livefyre:test.fyre.co:site=1:collection=2 or
+ * urn:livefyre:test.fyre.co:topic=news.
+ *
+ * Urns are canonical: every factory method and parse() return a shared instance, and each Urn keeps a
+ * reference to its parent instead of a copy of its prefix. The components are resolved when the Urn
+ * is created and the string form is built once, on first use.
+ */
+public final class Urn {
+    private static final String PREFIX = "urn:livefyre:";
+    private static final int MAX_PARSED = 10000;
+    private static final Interner<Urn> INTERNER = Interners.newWeakInterner();
+    private static final Cache<String, Urn> PARSED = CacheBuilder.newBuilder()
+            .maximumSize(MAX_PARSED)
+            .build();
+
+    private enum Kind {
+        NETWORK(null), SITE("site"), COLLECTION("collection"), USER("user"), TOPIC("topic");
+
+        private final String identifier;
+
+        private Kind(String identifier) {
+            this.identifier = identifier;
+        }
+
+        private static Kind fromIdentifier(String identifier) {
+            for (Kind kind : values()) {
+                if (kind != NETWORK && kind.identifier.equals(identifier)) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException("Unknown urn component: " + identifier);
+        }
+    }
+
+    private final Urn parent;
+    private final Kind kind;
+    private final String value;
+    private final int hash;
+
+    private final String network;
+    private final String site;
+    private final String collection;
+    private final String user;
+    private final String topic;
+
+    private String string;
+
+    private Urn(Urn parent, Kind kind, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Urn components cannot be null.");
+        }
+        this.parent = parent;
+        this.kind = kind;
+        this.value = value;
+        this.hash = 31 * (31 * (parent == null ? 0 : parent.hash) + kind.ordinal()) + value.hashCode();
+
+        this.network = parent == null ? value : parent.network;
+        this.site = kind == Kind.SITE ? value : parent == null ? null : parent.site;
+        this.collection = kind == Kind.COLLECTION ? value : parent == null ? null : parent.collection;
+        this.user = kind == Kind.USER ? value : null;
+        this.topic = kind == Kind.TOPIC ? value : null;
+    }
+
+    /**
+     * @param networkName the network's name, e.g. test.fyre.co.
+     * @return the network's Urn.
+     */
+    public static Urn network(String networkName) {
+        if (networkName == null || networkName.isEmpty()) {
+            throw new IllegalArgumentException("Network name cannot be empty.");
+        }
+        return INTERNER.intern(new Urn(null, Kind.NETWORK, networkName));
+    }
+
+    /**
+     * Returns the canonical Urn for a string. Recently parsed strings are looked up without parsing.
+     *
+     * @param urn the string form.
+     * @return Urn
+     * @throws IllegalArgumentException if the string is not a Livefyre urn.
+     */
+    public static Urn parse(final String urn) {
+        try {
+            return PARSED.get(urn, new Callable<Urn>() {
+                public Urn call() {
+                    return parseUncached(urn);
+                }
+            });
+        } catch (UncheckedExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IllegalArgumentException.class);
+            throw new IllegalStateException(e.getCause());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the shared instance of a urn string, so that urns read from many responses do not each
+     * keep their own copy. Strings that are not Livefyre urns are returned as is.
+     *
+     * @param urn the string form.
+     * @return String
+     */
+    public static String canonicalize(String urn) {
+        if (urn == null || !urn.startsWith(PREFIX)) {
+            return urn;
+        }
+        try {
+            return parse(urn).toString();
+        } catch (IllegalArgumentException e) {
+            return urn;
+        }
+    }
+
+    public Urn site(String siteId) {
+        return child(Kind.SITE, siteId);
+    }
+
+    public Urn collection(String collectionId) {
+        return child(Kind.COLLECTION, collectionId);
+    }
+
+    public Urn user(String userId) {
+        return child(Kind.USER, userId);
+    }
+
+    public Urn topic(String topicId) {
+        return child(Kind.TOPIC, topicId);
+    }
+
+    /* Components */
+    public Urn getParent() {
+        return parent;
+    }
+
+    public String getNetwork() {
+        return network;
+    }
+
+    public String getSite() {
+        return site;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public boolean isTopic() {
+        return kind == Kind.TOPIC;
+    }
+
+    /**
+     * @return true if this is a topic that belongs to the network itself rather than to a site or collection.
+     */
+    public boolean isNetworkTopic() {
+        return kind == Kind.TOPIC && parent.kind == Kind.NETWORK;
+    }
+
+    @Override
+    public String toString() {
+        String s = string;
+        if (s == null) {
+            s = parent == null ? PREFIX + value : parent.toString() + ":" + kind.identifier + "=" + value;
+            string = s;
+            // urns that were built rather than parsed are still found by parse() and canonicalize().
+            PARSED.put(s, this);
+        }
+        return s;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Urn)) {
+            return false;
+        }
+        Urn other = (Urn) obj;
+        return hash == other.hash && kind == other.kind && value.equals(other.value)
+                && (parent == null ? other.parent == null : parent.equals(other.parent));
+    }
+
+    private Urn child(Kind childKind, String childValue) {
+        boolean allowed;
+        switch (childKind) {
+        case SITE:
+        case USER:
+            allowed = kind == Kind.NETWORK;
+            break;
+        case COLLECTION:
+            allowed = kind == Kind.SITE;
+            break;
+        case TOPIC:
+            allowed = kind != Kind.USER && kind != Kind.TOPIC;
+            break;
+        default:
+            allowed = false;
+        }
+        if (!allowed) {
+            throw new IllegalArgumentException(String.format("A %s urn cannot have a %s.", kind.name().toLowerCase(),
+                    childKind.identifier));
+        }
+        return INTERNER.intern(new Urn(this, childKind, childValue));
+    }
+
+    /* Topic ids may contain colons, so a topic always takes the rest of the string. */
+    private static Urn parseUncached(String s) {
+        if (!s.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Not a Livefyre urn: " + s);
+        }
+        int colon = s.indexOf(':', PREFIX.length());
+        Urn urn = network(s.substring(PREFIX.length(), colon < 0 ? s.length() : colon));
+        while (colon >= 0) {
+            int equals = s.indexOf('=', colon + 1);
+            if (equals < 0) {
+                throw new IllegalArgumentException("Not a Livefyre urn: " + s);
+            }
+            Kind kind = Kind.fromIdentifier(s.substring(colon + 1, equals));
+            int next = kind == Kind.TOPIC ? -1 : s.indexOf(':', equals + 1);
+            urn = urn.child(kind, s.substring(equals + 1, next < 0 ? s.length() : next));
+            colon = next;
+        }
+        return urn;
+    }
+}
@@ -0,0 +1,60 @@
+package com.livefyre.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Layout of a snapshot file, shared by SnapshotWriter and SnapshotReader:
+ *
+ * <pre>
+ * int magic, byte version, byte kind, int count, int base timestamp
+ * varint dictionary size, then each entry as a string
+ * int offset of each record, count times
+ * records
+ * </pre>
+ *
+ * Strings are a varint of the UTF-8 length plus one, 0 meaning null, followed by the bytes. Urns are
+ * stored as a varint index into the dictionary plus one (0 meaning null) for their prefix, e.g.
+ * urn:livefyre:test.fyre.co:topic=, followed by the string after it. Subscription types are stored as
+ * dictionary indexes alone. Timestamps are a varint of their distance from the base timestamp plus
+ * one, 0 meaning null.
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x4c46534e;
+    static final byte VERSION = 1;
+    static final byte TOPICS = 1;
+    static final byte SUBSCRIPTIONS = 2;
+    static final int HEADER_SIZE = 14;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String TOPIC_PREFIX_END = ":topic=";
+
+    private SnapshotFormat() { }
+
+    /* Topic ids may contain '=', so everything after the topic= component is the topic's. */
+    static int prefixLength(String urn) {
+        int topic = urn.indexOf(TOPIC_PREFIX_END);
+        if (topic >= 0) {
+            return topic + TOPIC_PREFIX_END.length();
+        }
+        return urn.lastIndexOf('=') + 1;
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static void writeString(ByteArrayOutputStream out, String s) {
+        if (s == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = s.getBytes(UTF8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,146 @@
+package com.livefyre.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.livefyre.dto.Subscription;
+import com.livefyre.dto.Topic;
+import com.livefyre.model.Urn;
+
+/**
+ * Loads snapshot files written by SnapshotWriter. The file is memory-mapped and only its header and
+ * dictionary are read up front; the returned lists decode each item when it is asked for, so loading
+ * a snapshot takes about as long as mapping it. The lists are read-only and safe to share between threads.
+ *
+ * @see SnapshotFormat
+ */
+public abstract class SnapshotReader<T> extends AbstractList<T> implements RandomAccess {
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int base;
+    private final String[] dictionary;
+    private final int tableStart;
+
+    private SnapshotReader(File file, byte kind) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            buffer = raf.getChannel().map(MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();
+        }
+        if (buffer.capacity() < SnapshotFormat.HEADER_SIZE || buffer.getInt(0) != SnapshotFormat.MAGIC
+                || buffer.get(4) != SnapshotFormat.VERSION || buffer.get(5) != kind) {
+            throw new IOException(file + " is not a version " + SnapshotFormat.VERSION + " snapshot of "
+                    + (kind == SnapshotFormat.TOPICS ? "topics" : "subscriptions"));
+        }
+        count = buffer.getInt(6);
+        base = buffer.getInt(10);
+
+        int[] pos = { SnapshotFormat.HEADER_SIZE };
+        dictionary = new String[(int) readVarint(pos)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(pos);
+        }
+        tableStart = pos[0];
+    }
+
+    /**
+     * @param file a snapshot written by SnapshotWriter.writeTopics().
+     * @return the topics.
+     * @throws IOException if the file cannot be mapped or is not a topic snapshot.
+     */
+    public static List<Topic> readTopics(File file) throws IOException {
+        return new SnapshotReader<Topic>(file, SnapshotFormat.TOPICS) {
+            @Override
+            Topic decode(int[] pos) {
+                Topic topic = new Topic();
+                topic.setId(readUrn(pos));
+                topic.setLabel(readString(pos));
+                topic.setCreatedAt(readTimestamp(pos));
+                topic.setModifiedAt(readTimestamp(pos));
+                return topic;
+            }
+        };
+    }
+
+    /**
+     * @param file a snapshot written by SnapshotWriter.writeSubscriptions().
+     * @return the subscriptions.
+     * @throws IOException if the file cannot be mapped or is not a subscription snapshot.
+     */
+    public static List<Subscription> readSubscriptions(File file) throws IOException {
+        return new SnapshotReader<Subscription>(file, SnapshotFormat.SUBSCRIPTIONS) {
+            @Override
+            Subscription decode(int[] pos) {
+                Subscription subscription = new Subscription();
+                subscription.setTo(readUrn(pos));
+                subscription.setBy(readUrn(pos));
+                subscription.setType(readEntry(pos));
+                subscription.setCreatedAt(readTimestamp(pos));
+                return subscription;
+            }
+        };
+    }
+
+    /* Decodes the record at pos[0], advancing it. */
+    abstract T decode(int[] pos);
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+        }
+        return decode(new int[] { buffer.getInt(tableStart + 4 * index) });
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /* Reads use absolute positions only, so that the buffer can be shared between threads. */
+    String readUrn(int[] pos) {
+        String prefix = readEntry(pos);
+        return prefix == null ? null : Urn.canonicalize(prefix + readString(pos));
+    }
+
+    String readEntry(int[] pos) {
+        int index = (int) readVarint(pos);
+        return index == 0 ? null : dictionary[index - 1];
+    }
+
+    Integer readTimestamp(int[] pos) {
+        long value = readVarint(pos);
+        return value == 0 ? null : (int) (value - 1 + base);
+    }
+
+    String readString(int[] pos) {
+        int length = (int) readVarint(pos) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(pos[0] + i);
+        }
+        pos[0] += length;
+        return new String(bytes, SnapshotFormat.UTF8);
+    }
+
+    long readVarint(int[] pos) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(pos[0]++);
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.livefyre.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.livefyre.dto.Subscription;
+import com.livefyre.dto.Topic;
+
+/**
+ * Writes lists of topics or subscriptions as snapshot files, to be loaded again with SnapshotReader.
+ * Files are written next to their destination first and then moved into place, so a reader never
+ * sees a partly written snapshot.
+ *
+ * @see SnapshotFormat
+ */
+public final class SnapshotWriter {
+    private final Map<String, Integer> dictionary = Maps.newLinkedHashMap();
+    private final List<Integer> offsets = Lists.newArrayList();
+    private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+    private final int base;
+
+    private SnapshotWriter(int base) {
+        this.base = base;
+    }
+
+    /**
+     * @param topics the topics to write.
+     * @param file the snapshot file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeTopics(List<Topic> topics, File file) throws IOException {
+        int base = Integer.MAX_VALUE;
+        for (Topic topic : topics) {
+            base = min(base, topic.getCreatedAt());
+            base = min(base, topic.getModifiedAt());
+        }
+        SnapshotWriter writer = new SnapshotWriter(base);
+        for (Topic topic : topics) {
+            writer.startRecord();
+            writer.writeUrn(topic.getId());
+            SnapshotFormat.writeString(writer.records, topic.getLabel());
+            writer.writeTimestamp(topic.getCreatedAt());
+            writer.writeTimestamp(topic.getModifiedAt());
+        }
+        writer.writeTo(file, SnapshotFormat.TOPICS);
+    }
+
+    /**
+     * @param subscriptions the subscriptions to write.
+     * @param file the snapshot file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeSubscriptions(List<Subscription> subscriptions, File file) throws IOException {
+        int base = Integer.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            base = min(base, subscription.getCreatedAt());
+        }
+        SnapshotWriter writer = new SnapshotWriter(base);
+        for (Subscription subscription : subscriptions) {
+            writer.startRecord();
+            writer.writeUrn(subscription.getTo());
+            writer.writeUrn(subscription.getBy());
+            writer.writeEntry(subscription.getType());
+            writer.writeTimestamp(subscription.getCreatedAt());
+        }
+        writer.writeTo(file, SnapshotFormat.SUBSCRIPTIONS);
+    }
+
+    private void startRecord() {
+        offsets.add(records.size());
+    }
+
+    private void writeUrn(String urn) {
+        if (urn == null) {
+            SnapshotFormat.writeVarint(records, 0);
+            return;
+        }
+        int split = SnapshotFormat.prefixLength(urn);
+        writeEntry(urn.substring(0, split));
+        SnapshotFormat.writeString(records, urn.substring(split));
+    }
+
+    /* Writes a string that is stored in the dictionary as a whole. */
+    private void writeEntry(String s) {
+        if (s == null) {
+            SnapshotFormat.writeVarint(records, 0);
+            return;
+        }
+        Integer index = dictionary.get(s);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.put(s, index);
+        }
+        SnapshotFormat.writeVarint(records, index + 1);
+    }
+
+    private void writeTimestamp(Integer timestamp) {
+        SnapshotFormat.writeVarint(records, timestamp == null ? 0 : (long) timestamp - base + 1);
+    }
+
+    private void writeTo(File file, byte kind) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        head.write(ByteBuffer.allocate(SnapshotFormat.HEADER_SIZE)
+                .putInt(SnapshotFormat.MAGIC).put(SnapshotFormat.VERSION).put(kind)
+                .putInt(offsets.size()).putInt(base).array(), 0, SnapshotFormat.HEADER_SIZE);
+        SnapshotFormat.writeVarint(head, dictionary.size());
+        for (String prefix : dictionary.keySet()) {
+            SnapshotFormat.writeString(head, prefix);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp));
+        try {
+            head.writeTo(out);
+            int recordStart = head.size() + 4 * offsets.size();
+            for (Integer offset : offsets) {
+                out.writeInt(recordStart + offset);
+            }
+            records.writeTo(out);
+        } finally {
+            out.close();
+        }
+        Files.move(tmp, file);
+    }
+
+    private static int min(int base, Integer timestamp) {
+        return timestamp == null ? base : Math.min(base, timestamp);
+    }
+}
@@ -0,0 +1,238 @@
+package com.livefyre.utils;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.livefyre.dto.Topic;
+import com.livefyre.model.CollectionData;
+
+/**
+ * Writes the canonical JSON of a collection's attributes as UTF-8 bytes into a buffer that is reused
+ * from one call to the next. The output is byte-for-byte what Gson produces for CollectionData.asMap():
+ * keys in sorted order, null attributes left out and Gson's HTML-safe escaping.
+ *
+ * The bytes are meant to be handed straight to a MessageDigest or JwtSigner. Each thread has its own
+ * writer; use get() and do not hold on to the buffer past the next write.
+ */
+public final class CollectionJsonWriter {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte[] HEX = "0123456789abcdef".getBytes(UTF8);
+    private static final byte[][] ESCAPES = new byte[128][];
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = unicodeEscape((char) c);
+        }
+        ESCAPES['"'] = "\\\"".getBytes(UTF8);
+        ESCAPES['\\'] = "\\\\".getBytes(UTF8);
+        ESCAPES['\t'] = "\\t".getBytes(UTF8);
+        ESCAPES['\b'] = "\\b".getBytes(UTF8);
+        ESCAPES['\n'] = "\\n".getBytes(UTF8);
+        ESCAPES['\r'] = "\\r".getBytes(UTF8);
+        ESCAPES['\f'] = "\\f".getBytes(UTF8);
+        for (char c : "<>&='".toCharArray()) {
+            ESCAPES[c] = unicodeEscape(c);
+        }
+    }
+
+    private static final byte[] LINE_SEPARATOR = unicodeEscape('\u2028');
+    private static final byte[] PARAGRAPH_SEPARATOR = unicodeEscape('\u2029');
+
+    private static final ThreadLocal<CollectionJsonWriter> WRITERS = new ThreadLocal<CollectionJsonWriter>() {
+        @Override
+        protected CollectionJsonWriter initialValue() {
+            return new CollectionJsonWriter();
+        }
+    };
+
+    private byte[] buffer = new byte[1024];
+    private int length;
+
+    private CollectionJsonWriter() { }
+
+    /**
+     * @return this thread's writer.
+     */
+    public static CollectionJsonWriter get() {
+        return WRITERS.get();
+    }
+
+    /**
+     * Replaces the buffer's contents with the JSON of the collection's attributes.
+     *
+     * @param data the collection's attributes.
+     * @param iss the issuer to add among the attributes, as in collection meta tokens, or null for none.
+     * @return this
+     */
+    public CollectionJsonWriter write(CollectionData data, String iss) {
+        length = 0;
+        writeByte('{');
+        boolean first = writeMember(true, "articleId", data.getArticleId());
+        if (StringUtils.isNotBlank(data.getExtensions())) {
+            first = writeMember(first, "extensions", data.getExtensions());
+        }
+        first = writeMember(first, "iss", iss);
+        if (StringUtils.isNotBlank(data.getTags())) {
+            first = writeMember(first, "tags", data.getTags());
+        }
+        first = writeMember(first, "title", data.getTitle());
+        List<Topic> topics = data.getTopics();
+        if (topics != null && topics.size() > 0) {
+            first = writeName(first, "topics");
+            writeByte('[');
+            for (int i = 0; i < topics.size(); i++) {
+                if (i > 0) {
+                    writeByte(',');
+                }
+                writeTopic(topics.get(i));
+            }
+            writeByte(']');
+        }
+        first = writeMember(first, "type", data.getType().toString());
+        writeMember(first, "url", data.getUrl());
+        writeByte('}');
+        return this;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, UTF8);
+    }
+
+    private void writeTopic(Topic topic) {
+        if (topic == null) {
+            writeAscii("null");
+            return;
+        }
+        writeByte('{');
+        boolean first = writeMember(true, "id", topic.getId());
+        first = writeMember(first, "label", topic.getLabel());
+        first = writeMember(first, "createdAt", topic.getCreatedAt());
+        writeMember(first, "modifiedAt", topic.getModifiedAt());
+        writeByte('}');
+    }
+
+    /* Members with null values are left out. Returns whether the next member is still the first. */
+    private boolean writeMember(boolean first, String name, String value) {
+        if (value == null) {
+            return first;
+        }
+        writeName(first, name);
+        writeString(value);
+        return false;
+    }
+
+    private boolean writeMember(boolean first, String name, Integer value) {
+        if (value == null) {
+            return first;
+        }
+        writeName(first, name);
+        writeNumber(value);
+        return false;
+    }
+
+    private boolean writeName(boolean first, String name) {
+        if (!first) {
+            writeByte(',');
+        }
+        writeString(name);
+        writeByte(':');
+        return false;
+    }
+
+    private void writeString(String s) {
+        int n = s.length();
+        ensureCapacity(n * 6 + 2);
+        byte[] b = buffer;
+        int pos = length;
+        b[pos++] = '"';
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = ESCAPES[c];
+                if (escape == null) {
+                    b[pos++] = (byte) c;
+                } else {
+                    System.arraycopy(escape, 0, b, pos, escape.length);
+                    pos += escape.length;
+                }
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xc0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (c == '\u2028' || c == '\u2029') {
+                byte[] escape = c == '\u2028' ? LINE_SEPARATOR : PARAGRAPH_SEPARATOR;
+                System.arraycopy(escape, 0, b, pos, escape.length);
+                pos += escape.length;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    b[pos++] = (byte) (0xf0 | (cp >> 18));
+                    b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    b[pos++] = (byte) (0x80 | (cp & 0x3f));
+                } else {
+                    // unpaired surrogates are replaced, as String.getBytes() does.
+                    b[pos++] = '?';
+                }
+            } else {
+                b[pos++] = (byte) (0xe0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                b[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        b[pos++] = '"';
+        length = pos;
+    }
+
+    private void writeNumber(int value) {
+        ensureCapacity(11);
+        long v = value;
+        if (v < 0) {
+            buffer[length++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long p = 10; p <= v; p *= 10) {
+            digits++;
+        }
+        int pos = length + digits;
+        length = pos;
+        do {
+            buffer[--pos] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v > 0);
+    }
+
+    private void writeAscii(String s) {
+        ensureCapacity(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buffer[length++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            byte[] grown = new byte[Math.max(length + extra, buffer.length * 2)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+
+    private static byte[] unicodeEscape(char c) {
+        return new byte[] { '\\', 'u', HEX[c >> 12], HEX[(c >> 8) & 0xf], HEX[(c >> 4) & 0xf], HEX[c & 0xf] };
+    }
+}
@@ -0,0 +1,141 @@
+package com.livefyre.utils;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Formats and parses UTC timestamps of the form yyyy-MM-dd'T'HH:mm:ss.SSS'Z', as used by timeline
+ * cursors, without going through Date, Calendar or a shared DateFormat. Safe to use from any thread.
+ * 
+ * Years outside of 1583-9999 (before the Gregorian calendar, or wider than four digits) are rare
+ * enough that they are formatted with a per-thread SimpleDateFormat, so the output always matches
+ * that of SimpleDateFormat.
+ */
+public class Iso8601 {
+    private static final String PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final int LENGTH = 24;
+    private static final ThreadLocal<DateFormat> FALLBACK = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            DateFormat format = new SimpleDateFormat(PATTERN);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return format;
+        }
+    };
+
+    private Iso8601() { }
+
+    /**
+     * @param epochMillis milliseconds since the epoch.
+     * @return the timestamp, e.g. 2015-06-02T18:04:05.123Z
+     */
+    public static String format(long epochMillis) {
+        long days = floorDiv(epochMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) (epochMillis - days * MILLIS_PER_DAY);
+
+        /* civil-from-days, see http://howardhinnant.github.io/date_algorithms.html */
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 1583 || year > 9999) {
+            return FALLBACK.get().format(new Date(epochMillis));
+        }
+
+        char[] buf = new char[LENGTH];
+        write(buf, 0, (int) year, 4);
+        buf[4] = '-';
+        write(buf, 5, month, 2);
+        buf[7] = '-';
+        write(buf, 8, day, 2);
+        buf[10] = 'T';
+        write(buf, 11, millisOfDay / 3600000, 2);
+        buf[13] = ':';
+        write(buf, 14, millisOfDay / 60000 % 60, 2);
+        buf[16] = ':';
+        write(buf, 17, millisOfDay / 1000 % 60, 2);
+        buf[19] = '.';
+        write(buf, 20, millisOfDay % 1000, 3);
+        buf[23] = 'Z';
+        return new String(buf);
+    }
+
+    /**
+     * Parses a UTC timestamp in the proleptic Gregorian calendar. The fraction of a second may have any number of digits, or be left out.
+     * 
+     * @param s the timestamp, e.g. 2015-06-02T18:04:05.123Z
+     * @return milliseconds since the epoch.
+     * @throws IllegalArgumentException if s is not such a timestamp.
+     */
+    public static long parse(CharSequence s) {
+        int length = s.length();
+        if (length < 20 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T'
+                || s.charAt(13) != ':' || s.charAt(16) != ':' || s.charAt(length - 1) != 'Z') {
+            throw new IllegalArgumentException("Not an ISO-8601 UTC timestamp: " + s);
+        }
+        int year = read(s, 0, 4);
+        int month = read(s, 5, 2);
+        int day = read(s, 8, 2);
+        int hour = read(s, 11, 2);
+        int minute = read(s, 14, 2);
+        int second = read(s, 17, 2);
+        int millis = 0;
+        if (length > 20) {
+            if (s.charAt(19) != '.' || length == 21) {
+                throw new IllegalArgumentException("Not an ISO-8601 UTC timestamp: " + s);
+            }
+            int digits = Math.min(3, length - 21);
+            millis = read(s, 20, digits);
+            for (int i = digits; i < 3; i++) {
+                millis *= 10;
+            }
+            for (int i = 23; i < length - 1; i++) {
+                read(s, i, 1);
+            }
+        }
+        if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 59) {
+            throw new IllegalArgumentException("Not an ISO-8601 UTC timestamp: " + s);
+        }
+
+        /* days-from-civil */
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        long days = era * 146097 + doe - 719468;
+        return days * MILLIS_PER_DAY + hour * 3600000L + minute * 60000L + second * 1000L + millis;
+    }
+
+    private static void write(char[] buf, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int read(CharSequence s, int offset, int digits) {
+        int value = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Not an ISO-8601 UTC timestamp: " + s);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+    }
+}
@@ -0,0 +1,259 @@
+package com.livefyre.utils;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.livefyre.exceptions.TokenException;
+import com.livefyre.factory.GsonFactory;
+
+/**
+ * JwtSigner produces HS256-signed JWTs for a single key. Its output is identical to that of jose4j's
+ * JsonWebSignature with an {"alg":"HS256","typ":"JWT"} header, which LivefyreUtil used previously.
+ * 
+ * The encoded header is computed once, each thread keeps its own Mac already initialized with the
+ * key, and the claim JSON and encoded token are written into per-thread buffers that are reused
+ * from one token to the next.
+ * 
+ * Signers are created once per key; use forKey(key) to get one.
+ */
+public class JwtSigner {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int KEY_LENGTH = 32;
+    private static final int MAX_SIGNERS = 1000;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(ASCII);
+    private static final byte[] ENCODED_HEADER = base64UrlAscii("{\"alg\":\"HS256\",\"typ\":\"JWT\"}");
+
+    private static final LoadingCache<String, JwtSigner> SIGNERS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIGNERS)
+            .build(new CacheLoader<String, JwtSigner>() {
+                @Override
+                public JwtSigner load(String key) {
+                    return new JwtSigner(key);
+                }
+            });
+
+    private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    private final SecretKeySpec secretKey;
+    private final ThreadLocal<Mac> mac = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                Mac m = Mac.getInstance(ALGORITHM);
+                m.init(secretKey);
+                return m;
+            } catch (GeneralSecurityException e) {
+                throw new TokenException(e);
+            }
+        }
+    };
+
+    private JwtSigner(String key) {
+        /* Keys are padded/truncated to 32 bytes, as they always have been. */
+        this.secretKey = new SecretKeySpec(Arrays.copyOf(key.getBytes(), KEY_LENGTH), ALGORITHM);
+    }
+
+    /**
+     * Returns the signer for a key, creating it on first use.
+     * 
+     * @param key the secret key.
+     * @return JwtSigner
+     */
+    public static JwtSigner forKey(String key) {
+        return SIGNERS.getUnchecked(key);
+    }
+
+    /**
+     * Serializes the claims to JSON and signs them.
+     * 
+     * @param claims the claims for the token.
+     * @return the compact serialization of the signed token.
+     */
+    public String sign(Map<String, Object> claims) {
+        Buffers buf = BUFFERS.get();
+        buf.json.setLength(0);
+        GsonFactory.getGson().toJson(claims, buf.json);
+        int payloadLength = buf.encodeUtf8(buf.json);
+        return sign(buf, buf.utf8, payloadLength);
+    }
+
+    /**
+     * Signs claims that are already serialized, e.g. by CollectionJsonWriter.
+     * 
+     * @param json the UTF-8 encoded JSON of the claims.
+     * @param length the number of bytes of json to use.
+     * @return the compact serialization of the signed token.
+     */
+    public String sign(byte[] json, int length) {
+        return sign(BUFFERS.get(), json, length);
+    }
+
+    private String sign(Buffers buf, byte[] payload, int payloadLength) {
+        int pos = 0;
+        byte[] out = buf.ensureOut(ENCODED_HEADER.length + 1 + base64UrlLength(payloadLength) + 1 + base64UrlLength(KEY_LENGTH));
+        System.arraycopy(ENCODED_HEADER, 0, out, 0, ENCODED_HEADER.length);
+        pos += ENCODED_HEADER.length;
+        out[pos++] = '.';
+        pos = base64Url(payload, payloadLength, out, pos);
+
+        Mac m = mac.get();
+        m.update(out, 0, pos);
+        try {
+            m.doFinal(buf.signature, 0);
+        } catch (GeneralSecurityException e) {
+            throw new TokenException(e);
+        }
+        out[pos++] = '.';
+        pos = base64Url(buf.signature, buf.signature.length, out, pos);
+
+        return new String(out, 0, pos, ASCII);
+    }
+
+    /**
+     * Checks the signature of a token produced by this signer, in constant time.
+     * 
+     * @param token the compact serialization of the token.
+     * @param signatureStart index of the first character of the signature segment.
+     * @return true if the signature matches the rest of the token.
+     */
+    boolean hasValidSignature(String token, int signatureStart) {
+        int signingInputLength = signatureStart - 1;
+        if (signingInputLength < 0 || token.length() - signatureStart != base64UrlLength(KEY_LENGTH)) {
+            return false;
+        }
+        Buffers buf = BUFFERS.get();
+        byte[] in = buf.ensureOut(signingInputLength + base64UrlLength(KEY_LENGTH));
+        for (int i = 0; i < signingInputLength; i++) {
+            char c = token.charAt(i);
+            if (c >= 0x80) {
+                return false;
+            }
+            in[i] = (byte) c;
+        }
+
+        Mac m = mac.get();
+        m.update(in, 0, signingInputLength);
+        try {
+            m.doFinal(buf.signature, 0);
+        } catch (GeneralSecurityException e) {
+            throw new TokenException(e);
+        }
+        int end = base64Url(buf.signature, buf.signature.length, in, 0);
+        int diff = 0;
+        for (int i = 0; i < end; i++) {
+            diff |= in[i] ^ token.charAt(signatureStart + i);
+        }
+        return diff == 0;
+    }
+
+    static boolean hasStandardHeader(String token, int headerEnd) {
+        if (headerEnd != ENCODED_HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < headerEnd; i++) {
+            if (token.charAt(i) != ENCODED_HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int base64UrlLength(int length) {
+        return (length / 3) * 4 + (length % 3 == 0 ? 0 : length % 3 + 1);
+    }
+
+    /* Unpadded base64url, written as ASCII into out starting at pos. Returns the new position. */
+    private static int base64Url(byte[] in, int length, byte[] out, int pos) {
+        int i = 0;
+        for (; i + 2 < length; i += 3) {
+            int b = (in[i] & 0xff) << 16 | (in[i + 1] & 0xff) << 8 | (in[i + 2] & 0xff);
+            out[pos++] = BASE64URL[b >>> 18];
+            out[pos++] = BASE64URL[(b >>> 12) & 0x3f];
+            out[pos++] = BASE64URL[(b >>> 6) & 0x3f];
+            out[pos++] = BASE64URL[b & 0x3f];
+        }
+        int remaining = length - i;
+        if (remaining == 1) {
+            int b = (in[i] & 0xff) << 16;
+            out[pos++] = BASE64URL[b >>> 18];
+            out[pos++] = BASE64URL[(b >>> 12) & 0x3f];
+        } else if (remaining == 2) {
+            int b = (in[i] & 0xff) << 16 | (in[i + 1] & 0xff) << 8;
+            out[pos++] = BASE64URL[b >>> 18];
+            out[pos++] = BASE64URL[(b >>> 12) & 0x3f];
+            out[pos++] = BASE64URL[(b >>> 6) & 0x3f];
+        }
+        return pos;
+    }
+
+    private static byte[] base64UrlAscii(String s) {
+        byte[] in = s.getBytes(Charset.forName("UTF-8"));
+        byte[] out = new byte[base64UrlLength(in.length)];
+        base64Url(in, in.length, out, 0);
+        return out;
+    }
+
+    /* Per-thread scratch space, grown as needed and reused across tokens. */
+    private static class Buffers {
+        private final StringBuilder json = new StringBuilder(512);
+        private final byte[] signature = new byte[KEY_LENGTH];
+        private byte[] utf8 = new byte[1024];
+        private byte[] out = new byte[1536];
+
+        private byte[] ensureOut(int length) {
+            if (out.length < length) {
+                out = new byte[Math.max(length, out.length * 2)];
+            }
+            return out;
+        }
+
+        /* UTF-8 encodes s into utf8, replacing unpaired surrogates with '?' as String.getBytes does. */
+        private int encodeUtf8(CharSequence s) {
+            int length = s.length();
+            if (utf8.length < length * 3) {
+                utf8 = new byte[Math.max(length * 3, utf8.length * 2)];
+            }
+            byte[] b = utf8;
+            int pos = 0;
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    b[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    b[pos++] = (byte) (0xc0 | (c >> 6));
+                    b[pos++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, s.charAt(++i));
+                        b[pos++] = (byte) (0xf0 | (cp >> 18));
+                        b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                        b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                        b[pos++] = (byte) (0x80 | (cp & 0x3f));
+                    } else {
+                        b[pos++] = '?';
+                    }
+                } else {
+                    b[pos++] = (byte) (0xe0 | (c >> 12));
+                    b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    b[pos++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            return pos;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.livefyre.utils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+import org.jose4j.keys.HmacKey;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.io.BaseEncoding;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.livefyre.exceptions.TokenException;
+
+/**
+ * JwtVerifier checks HS256-signed JWTs for a single key.
+ * 
+ * Tokens in the form produced by JwtSigner are verified directly, and the claims the library needs
+ * are read straight from the payload. Anything else (other headers, or registered claims such as
+ * exp, nbf and aud that need further validation) is handed to a jose4j JwtConsumer that is built once.
+ * 
+ * Verified tokens are remembered in a bounded LRU keyed by the token itself until they expire, so
+ * repeated calls with the same token skip signature verification. Like decodeJwt always has, an
+ * expired token still verifies; it is only kept out of the cache.
+ * 
+ * Verifiers are created once per key; use forKey(key) to get one.
+ */
+public class JwtVerifier {
+    public static final int DEFAULT_MAX_TOKENS = 10000;
+    private static final int KEY_LENGTH = 32;
+    private static final int MAX_VERIFIERS = 1000;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final BaseEncoding BASE64URL = BaseEncoding.base64Url().omitPadding();
+
+    private static final LoadingCache<String, JwtVerifier> VERIFIERS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_VERIFIERS)
+            .build(new CacheLoader<String, JwtVerifier>() {
+                @Override
+                public JwtVerifier load(String key) {
+                    return new JwtVerifier(key);
+                }
+            });
+
+    private final JwtSigner signer;
+    private final JwtConsumer consumer;
+    private final Cache<String, TokenClaims> verified = CacheBuilder.newBuilder()
+            .maximumSize(DEFAULT_MAX_TOKENS)
+            .build();
+
+    private JwtVerifier(String key) {
+        this.signer = JwtSigner.forKey(key);
+        this.consumer = new JwtConsumerBuilder()
+                .setVerificationKey(new HmacKey(Arrays.copyOf(key.getBytes(), KEY_LENGTH)))
+                .build();
+    }
+
+    /**
+     * Returns the verifier for a key, creating it on first use.
+     * 
+     * @param key the secret key.
+     * @return JwtVerifier
+     */
+    public static JwtVerifier forKey(String key) {
+        return VERIFIERS.getUnchecked(key);
+    }
+
+    /**
+     * Verifies a token and returns its claims.
+     * 
+     * @param jwt the token to verify.
+     * @return TokenClaims
+     * @throws TokenException if the token is malformed or its signature does not match.
+     */
+    public TokenClaims verify(String jwt) {
+        long now = System.currentTimeMillis() / 1000L;
+        TokenClaims claims = verified.getIfPresent(jwt);
+        if (claims != null && !claims.isExpired(now)) {
+            return claims;
+        }
+
+        claims = verifyUncached(jwt);
+        if (claims.isExpired(now)) {
+            verified.invalidate(jwt);
+        } else {
+            verified.put(jwt, claims);
+        }
+        return claims;
+    }
+
+    /**
+     * Verifies a token and returns all of its claims. A new JsonObject is returned on every call.
+     * 
+     * @param jwt the token to verify.
+     * @return JsonObject
+     * @throws TokenException if the token is malformed or its signature does not match.
+     */
+    public JsonObject decode(String jwt) {
+        verify(jwt);
+        try {
+            return new JsonParser().parse(new String(payload(jwt), UTF8)).getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new TokenException(e);
+        }
+    }
+
+    private TokenClaims verifyUncached(String jwt) {
+        int headerEnd = jwt.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : jwt.indexOf('.', headerEnd + 1);
+        if (payloadEnd < 0 || !JwtSigner.hasStandardHeader(jwt, headerEnd)) {
+            return consume(jwt);
+        }
+        if (!signer.hasValidSignature(jwt, payloadEnd + 1)) {
+            throw new TokenException("Token signature is invalid.");
+        }
+        TokenClaims claims = readClaims(payload(jwt));
+        return claims == null ? consume(jwt) : claims;
+    }
+
+    private TokenClaims consume(String jwt) {
+        try {
+            JwtClaims claims = consumer.processToClaims(jwt);
+            Object expires = claims.getClaimValue("expires");
+            return new TokenClaims(
+                    claims.getStringClaimValue("domain"),
+                    claims.getStringClaimValue("user_id"),
+                    claims.getStringClaimValue("display_name"),
+                    expires instanceof Number ? ((Number) expires).longValue() : null);
+        } catch (InvalidJwtException e) {
+            throw new TokenException(e);
+        } catch (MalformedClaimException e) {
+            throw new TokenException(e);
+        }
+    }
+
+    private static byte[] payload(String jwt) {
+        int headerEnd = jwt.indexOf('.');
+        int payloadEnd = jwt.indexOf('.', headerEnd + 1);
+        try {
+            return BASE64URL.decode(jwt.substring(headerEnd + 1, payloadEnd));
+        } catch (IllegalArgumentException e) {
+            throw new TokenException(e);
+        }
+    }
+
+    /* Reads the claims we need in one pass. Returns null if the payload holds claims that need validating. */
+    private static TokenClaims readClaims(byte[] payload) {
+        String domain = null;
+        String userId = null;
+        String displayName = null;
+        Long expires = null;
+        JsonReader reader = new JsonReader(new StringReader(new String(payload, UTF8)));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("exp".equals(name) || "nbf".equals(name) || "aud".equals(name)) {
+                    return null;
+                } else if ("domain".equals(name)) {
+                    domain = readString(reader);
+                } else if ("user_id".equals(name)) {
+                    userId = readString(reader);
+                } else if ("display_name".equals(name)) {
+                    displayName = readString(reader);
+                } else if ("expires".equals(name)) {
+                    expires = readLong(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException e) {
+            throw new TokenException(e);
+        } catch (JsonParseException e) {
+            throw new TokenException(e);
+        } catch (IllegalStateException e) {
+            throw new TokenException(e);
+        }
+        return new TokenClaims(domain, userId, displayName, expires);
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static Long readLong(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return (long) reader.nextDouble();
+        }
+        reader.skipValue();
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+package com.livefyre.utils;
+
+/**
+ * The claims of a verified user auth token that the library itself relies on.
+ */
+public class TokenClaims {
+    private final String domain;
+    private final String userId;
+    private final String displayName;
+    private final Long expires;
+
+    public TokenClaims(String domain, String userId, String displayName, Long expires) {
+        this.domain = domain;
+        this.userId = userId;
+        this.displayName = displayName;
+        this.expires = expires;
+    }
+
+    /**
+     * @param nowInSeconds the current time in seconds since the epoch.
+     * @return true if the token carries an expiry that has passed.
+     */
+    public boolean isExpired(long nowInSeconds) {
+        return expires != null && expires < nowInSeconds;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * @return the expiry in seconds since the epoch, or null if the token has none.
+     */
+    public Long getExpires() {
+        return expires;
+    }
+}
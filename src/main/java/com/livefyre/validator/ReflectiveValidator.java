@@ -1,27 +1,45 @@
 package com.livefyre.validator;
 
-import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.livefyre.exceptions.LivefyreException;
+import com.livefyre.model.CollectionData;
+import com.livefyre.model.CursorData;
+import com.livefyre.model.NetworkData;
+import com.livefyre.model.SiteData;
 
+/**
+ * Validates model objects with the Validator registered for their class.
+ * 
+ * Validators for the library's own *Data classes are registered up front. For any other class, the
+ * validator is looked up once by naming convention (FooData is validated by FooValidator in this
+ * package) and then reused. Validators must be stateless, as a single instance is shared.
+ */
 public class ReflectiveValidator {
+    private static final ConcurrentMap<Class<?>, Validator<?>> VALIDATORS = new ConcurrentHashMap<Class<?>, Validator<?>>();
+
+    static {
+        register(NetworkData.class, new NetworkValidator());
+        register(SiteData.class, new SiteValidator());
+        register(CollectionData.class, new CollectionValidator());
+        register(CursorData.class, new CursorValidator());
+    }
+
+    /**
+     * Registers the validator to use for a class, replacing any previous one.
+     * 
+     * @param clazz the class to validate.
+     * @param validator a stateless validator.
+     */
+    public static <T> void register(Class<T> clazz, Validator<? super T> validator) {
+        VALIDATORS.put(clazz, validator);
+    }
+
     public static <T> T validate(T data) {
-        String dataClazzName = data.getClass().getSimpleName();
-        String packageName = ReflectiveValidator.class.getPackage().getName();
-        String validatorClazzName = packageName+"."+dataClazzName.replaceFirst("Data", "Validator");
-        String message = null;
-        try {
-            Class<?> validator = Class.forName(validatorClazzName);
-            Method m = validator.getDeclaredMethod("validate", data.getClass());
-            Object obj = m.invoke(validator.newInstance(), data);
-            if (obj != null && obj instanceof String) {
-                message = (String) obj;
-            }
-        } catch (Exception e) {
-            throw new LivefyreException("Something went horribly wrong. Contact us at tools@livefyre.com and attach: ", e);
-        }
+        String message = validatorFor(data.getClass()).validate(data);
         
         if (StringUtils.isNotBlank(message)) {
             throw new IllegalArgumentException(message);
@@ -29,4 +47,27 @@ public class ReflectiveValidator {
         
         return data;
     }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Validator<T> validatorFor(Class<?> clazz) {
+        Validator<?> validator = VALIDATORS.get(clazz);
+        if (validator == null) {
+            validator = lookup(clazz);
+            Validator<?> existing = VALIDATORS.putIfAbsent(clazz, validator);
+            if (existing != null) {
+                validator = existing;
+            }
+        }
+        return (Validator<T>) validator;
+    }
+
+    private static Validator<?> lookup(Class<?> clazz) {
+        String packageName = ReflectiveValidator.class.getPackage().getName();
+        String validatorClazzName = packageName+"."+clazz.getSimpleName().replaceFirst("Data", "Validator");
+        try {
+            return (Validator<?>) Class.forName(validatorClazzName).newInstance();
+        } catch (Exception e) {
+            throw new LivefyreException("Something went horribly wrong. Contact us at tools@livefyre.com and attach: ", e);
+        }
+    }
 }
@@ -0,0 +1,199 @@
+package com.livefyre.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.livefyre.Livefyre;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.StubServer;
+import com.livefyre.config.UnitTest;
+import com.livefyre.core.Collection;
+import com.livefyre.core.Site;
+import com.livefyre.dto.ReconcileResult;
+import com.livefyre.dto.Topic;
+import com.livefyre.exceptions.ApiException;
+import com.livefyre.factory.GsonFactory;
+
+@Category(UnitTest.class)
+public class CollectionTopicReconcilerTest extends LfTest {
+    /* Stands in for Livefyre: the topic ids of each collection, keyed by request path. */
+    private final Map<String, Set<String>> assignments = Maps.newConcurrentMap();
+    private final List<String> calls = Lists.newCopyOnWriteArrayList();
+    private StubServer server;
+    private Site site;
+
+    @Before
+    public void setup() throws IOException {
+        server = StubServer.start(new StubServer.Handler() {
+            public void handle(StubServer.Request request) throws IOException {
+                String path = request.getPath();
+                String method = request.getMethod();
+                calls.add(method);
+                if (path.contains("collection=broken")) {
+                    request.respond(500, "{}");
+                    return;
+                }
+                Set<String> current = assignments.get(path);
+                if (current == null) {
+                    current = Sets.newConcurrentHashSet();
+                    assignments.put(path, current);
+                }
+                if (method.equals("GET")) {
+                    request.respond(200, "{\"data\":{\"topicIds\":" + GsonFactory.getGson().toJson(current) + "}}");
+                    return;
+                }
+                Set<String> ids = Sets.newHashSet();
+                for (JsonElement id : (JsonArray) request.getJson().get(method.equals("PATCH") ? "delete" : "topicIds")) {
+                    ids.add(id.getAsString());
+                }
+                int added = 0;
+                int removed = 0;
+                if (method.equals("PUT")) {
+                    removed = Sets.difference(current, ids).size();
+                    added = Sets.difference(ids, current).size();
+                    current.retainAll(ids);
+                    current.addAll(ids);
+                } else if (method.equals("POST")) {
+                    added = Sets.difference(ids, current).size();
+                    current.addAll(ids);
+                } else {
+                    removed = Sets.intersection(current, ids).size();
+                    current.removeAll(ids);
+                }
+                request.respond(200, "{\"data\":{\"added\":" + added + ",\"removed\":" + removed + "}}");
+            }
+        });
+        site = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY).getSite(SITE_ID, SITE_KEY);
+        site.getNetwork().setQuillUrl(server.getUrl());
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    @Test
+    public void testReconcile() {
+        Collection inSync = collection("1");
+        Collection onlyAdds = collection("2");
+        Collection onlyRemoves = collection("3");
+        Collection both = collection("4");
+        Collection broken = collection("broken");
+
+        Map<Collection, List<Topic>> desired = Maps.newLinkedHashMap();
+        desired.put(inSync, topics("a", "b"));
+        desired.put(onlyAdds, topics("a", "b", "c"));
+        desired.put(onlyRemoves, topics("a"));
+        desired.put(both, topics("b", "c"));
+        desired.put(broken, topics("a"));
+
+        // every collection starts out with topics a and b.
+        Map<Collection, List<Topic>> initial = Maps.newHashMap();
+        for (Collection collection : Arrays.asList(inSync, onlyAdds, onlyRemoves, both)) {
+            initial.put(collection, topics("a", "b"));
+        }
+        assertEquals(4, new CollectionTopicReconciler().reconcile(initial).getUpdated());
+        calls.clear();
+
+        ReconcileResult result = new CollectionTopicReconciler(2).reconcile(desired);
+        assertEquals(1, result.getInSync());
+        assertEquals(3, result.getUpdated());
+        assertEquals(2, result.getAdded());
+        assertEquals(2, result.getRemoved());
+        assertEquals(1, result.getFailed());
+        assertFalse(result.isSuccess());
+        assertTrue(result.getFailures().get(broken) instanceof ApiException);
+
+        // one read per collection and a single write for each collection that was out of sync.
+        assertEquals(5, count("GET"));
+        assertEquals(1, count("POST"));
+        assertEquals(1, count("PATCH"));
+        assertEquals(1, count("PUT"));
+
+        calls.clear();
+        desired.remove(broken);
+        result = new CollectionTopicReconciler().reconcile(desired);
+        assertEquals(4, result.getInSync());
+        assertTrue(result.isSuccess());
+        assertEquals(Arrays.asList("GET", "GET", "GET", "GET"), calls);
+    }
+
+    @Test
+    public void testSendsDelta() {
+        Collection collection = collection("1");
+        Map<Collection, List<Topic>> desired = Maps.newHashMap();
+        desired.put(collection, topics("a", "b", "c", "d", "e", "f"));
+        new CollectionTopicReconciler().reconcile(desired);
+        calls.clear();
+
+        // one topic in and one out of six: an add and a remove rather than the full set.
+        desired.put(collection, topics("b", "c", "d", "e", "f", "g"));
+        ReconcileResult result = new CollectionTopicReconciler().reconcile(desired);
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getAdded());
+        assertEquals(1, result.getRemoved());
+        assertEquals(Arrays.asList("GET", "POST", "PATCH"), calls);
+        Set<String> ids = Sets.newHashSet();
+        for (Topic topic : topics("b", "c", "d", "e", "f", "g")) {
+            ids.add(topic.getId());
+        }
+        assertEquals(ids, assignments.values().iterator().next());
+    }
+
+    @Test
+    public void testRejectedSubmit() {
+        Map<Collection, List<Topic>> desired = Maps.newLinkedHashMap();
+        desired.put(collection("1"), topics("a"));
+        desired.put(collection("2"), topics("b"));
+        desired.put(collection("3"), topics("c"));
+        site.getNetwork().getTransport().destroy();
+
+        // a rejected collection gives its slot back, so the others are still tried rather than waited on.
+        ReconcileResult result = new CollectionTopicReconciler(1).reconcile(desired);
+        assertEquals(3, result.getFailed());
+        for (Throwable failure : result.getFailures().values()) {
+            assertTrue(failure instanceof RejectedExecutionException);
+        }
+        assertTrue(calls.isEmpty());
+    }
+
+    private Collection collection(String id) {
+        Collection collection = site.buildCommentsCollection("title", "article" + id, URL);
+        collection.getData().setId(id);
+        return collection;
+    }
+
+    private List<Topic> topics(String... ids) {
+        List<Topic> topics = Lists.newArrayList();
+        for (String id : ids) {
+            topics.add(Topic.create(site.getNetwork(), id, "label " + id));
+        }
+        return topics;
+    }
+
+    private int count(String method) {
+        int n = 0;
+        for (String call : calls) {
+            n += call.equals(method) ? 1 : 0;
+        }
+        return n;
+    }
+}
@@ -1,6 +1,7 @@
 package com.livefyre.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -66,4 +67,37 @@ public class DomainTest extends LfTest {
         domain = Domain.bootstrap(collection);
         assertEquals(bootstrapDomain, domain);
     }
+    
+    @Test
+    @Category(UnitTest.class)
+    public void testOverride() {
+        Endpoints endpoints = network.getEndpoints();
+        assertSame(endpoints, network.getEndpoints());
+        
+        network.setQuillUrl("http://localhost:8080/");
+        network.setBootstrapUrl("http://localhost:8081");
+        assertEquals("http://localhost:8080", Domain.quill(collection));
+        assertEquals("http://localhost:8081", Domain.bootstrap(site));
+        assertEquals("http://localhost:8080/api/v4", network.getEndpoints().getPersonalizedStream().toString());
+        assertEquals("http://localhost:8080/api/v3.0/site/1/collection/create/",
+                network.getEndpoints().collectionApi("1", "create"));
+        assertEquals(String.format("http://localhost:8081/bs3/%s.fyre.co/1/YQ==/init", network.getNetworkName()),
+                network.getEndpoints().collectionContent("1", "YQ=="));
+        
+        network.setQuillUrl(null);
+        network.setBootstrapUrl(null);
+        assertEquals(String.format("https://%s.quill.fyre.co", network.getNetworkName()), Domain.quill(network));
+        assertEquals(String.format("https://%s.bootstrap.fyre.co/api/v4", network.getNetworkName()),
+                network.getEndpoints().getStream().toString());
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void testEndpointsFollowData() {
+        Domain.quill(network);
+        network.getData().setName("other.fyre.co");
+        assertEquals("https://other.quill.fyre.co", Domain.quill(network));
+        network.setSsl(false);
+        assertEquals("http://quill.other.fyre.co", Domain.quill(network));
+    }
 }
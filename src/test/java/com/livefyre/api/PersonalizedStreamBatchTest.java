@@ -0,0 +1,117 @@
+package com.livefyre.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Maps;
+import com.livefyre.Livefyre;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.StubServer;
+import com.livefyre.config.UnitTest;
+import com.livefyre.core.Network;
+import com.livefyre.dto.BatchResult;
+import com.livefyre.dto.ChunkResult;
+import com.livefyre.dto.Topic;
+import com.livefyre.exceptions.ApiException;
+
+@Category(UnitTest.class)
+public class PersonalizedStreamBatchTest extends LfTest {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger calls = new AtomicInteger();
+    private StubServer server;
+    private Network network;
+
+    @Before
+    public void setup() throws IOException {
+        server = StubServer.start(new StubServer.Handler() {
+            public void handle(StubServer.Request request) throws IOException {
+                int current = inFlight.incrementAndGet();
+                calls.incrementAndGet();
+                synchronized (maxInFlight) {
+                    maxInFlight.set(Math.max(maxInFlight.get(), current));
+                }
+                String body = request.getBody();
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                request.respond(body.contains("label 150") ? 500 : 200, "{\"data\":{\"deleted\":100}}");
+            }
+        });
+        network = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY);
+        network.setQuillUrl(server.getUrl());
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    @Test
+    public void testCreateOrUpdateTopicBatch() {
+        Map<String, String> topicMap = Maps.newLinkedHashMap();
+        for (int i = 0; i < 250; i++) {
+            topicMap.put(String.valueOf(i), "label " + i);
+        }
+        BatchResult<List<Topic>> result = PersonalizedStream.createOrUpdateTopicBatch(network, topicMap, 100, 2);
+
+        assertEquals(3, calls.get());
+        assertTrue(maxInFlight.get() <= 2);
+        assertEquals(3, result.getChunks().size());
+        assertFalse(result.isSuccess());
+
+        ChunkResult<List<Topic>> first = result.getChunks().get(0);
+        assertTrue(first.isSuccess());
+        assertEquals("0", first.getIds().get(0));
+        assertEquals(100, first.getResult().size());
+
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getChunks().get(1).getError() instanceof ApiException);
+        assertEquals(100, result.getFailedIds().size());
+        assertEquals("100", result.getFailedIds().get(0));
+        assertEquals(50, result.getChunks().get(2).getResult().size());
+    }
+
+    @Test
+    public void testDeleteTopicBatch() {
+        List<Topic> topics = PersonalizedStream.createOrUpdateTopicBatch(network, Maps.toMap(
+                Arrays.asList("a", "b", "c"), new Function<String, String>() {
+                    public String apply(String id) {
+                        return "label " + id;
+                    }
+                })).getChunks().get(0).getResult();
+        BatchResult<Integer> result = PersonalizedStream.deleteTopicBatch(network, topics, 2, 1);
+        assertTrue(result.isSuccess());
+        assertEquals(2, result.getChunks().size());
+        assertEquals(Arrays.asList(topics.get(2).getId()), result.getChunks().get(1).getIds());
+        assertEquals(Integer.valueOf(100), result.getChunks().get(1).getResult());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChecksLabelsFirst() {
+        Map<String, String> topicMap = Maps.newLinkedHashMap();
+        topicMap.put("1", "label");
+        topicMap.put("2", "");
+        try {
+            PersonalizedStream.createOrUpdateTopicBatch(network, topicMap);
+        } finally {
+            assertEquals(0, calls.get());
+        }
+    }
+}
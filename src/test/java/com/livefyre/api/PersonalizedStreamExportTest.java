@@ -0,0 +1,136 @@
+package com.livefyre.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.livefyre.Livefyre;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.StubServer;
+import com.livefyre.config.UnitTest;
+import com.livefyre.core.Network;
+import com.livefyre.exceptions.ApiException;
+import com.livefyre.utils.LivefyreUtil;
+
+@Category(UnitTest.class)
+public class PersonalizedStreamExportTest extends LfTest {
+    private static final int TOPICS = 450;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /* Requests for this offset or beyond fail. */
+    private final AtomicInteger failFrom = new AtomicInteger(Integer.MAX_VALUE);
+    private final List<Integer> offsets = Lists.newCopyOnWriteArrayList();
+    private StubServer server;
+    private Network network;
+
+    @Before
+    public void setup() throws IOException {
+        server = StubServer.start(new StubServer.Handler() {
+            public void handle(StubServer.Request request) throws IOException {
+                int limit = Integer.parseInt(request.getQuery().get("limit"));
+                int offset = Integer.parseInt(request.getQuery().get("offset"));
+                offsets.add(offset);
+                StringBuilder body = new StringBuilder("{\"data\":{\"topics\":[");
+                for (int i = offset; i < Math.min(offset + limit, TOPICS); i++) {
+                    body.append(i > offset ? "," : "").append("{\"id\":\"urn:livefyre:test.fyre.co:topic=")
+                        .append(i).append("\",\"label\":\"topic ").append(i).append("\",\"createdAt\":1}");
+                }
+                request.respond(offset >= failFrom.get() ? 500 : 200, body.append("]}}").toString());
+            }
+        });
+        network = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY);
+        network.setQuillUrl(server.getUrl());
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    @Test
+    public void testExportToStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(TOPICS - 120, PersonalizedStreamExport.exportTopics(network, out, 120));
+
+        List<String> lines = lines(new String(out.toByteArray(), "UTF-8"));
+        assertEquals(TOPICS - 120, lines.size());
+        assertEquals("topic 120", LivefyreUtil.stringToJson(lines.get(0)).get("label").getAsString());
+        assertEquals("topic 449", LivefyreUtil.stringToJson(lines.get(lines.size() - 1)).get("label").getAsString());
+    }
+
+    @Test
+    public void testResumesFileExport() throws Exception {
+        File file = new File(folder.getRoot(), "topics.ndjson.gz");
+        failFrom.set(300);
+        try {
+            PersonalizedStreamExport.exportTopics(network, file, true);
+            fail("the export should stop at the failing page");
+        } catch (ApiException e) {}
+        assertTrue(new File(file.getPath() + ".checkpoint").exists());
+        assertEquals(300, read(file, true).size());
+
+        failFrom.set(Integer.MAX_VALUE);
+        offsets.clear();
+        assertEquals(TOPICS, PersonalizedStreamExport.exportTopics(network, file, true));
+        assertEquals(Integer.valueOf(300), Collections.min(offsets));
+        assertFalse(new File(file.getPath() + ".checkpoint").exists());
+
+        List<String> lines = read(file, true);
+        assertEquals(TOPICS, lines.size());
+        for (int i = 0; i < TOPICS; i++) {
+            assertEquals("topic " + i, LivefyreUtil.stringToJson(lines.get(i)).get("label").getAsString());
+        }
+    }
+
+    @Test
+    public void testPlainFileExport() throws Exception {
+        File file = new File(folder.getRoot(), "topics.ndjson");
+        assertEquals(TOPICS, PersonalizedStreamExport.exportTopics(network, file, false));
+        assertEquals(TOPICS, read(file, false).size());
+        // a completed export starts over rather than appending.
+        assertEquals(TOPICS, PersonalizedStreamExport.exportTopics(network, file, false));
+        assertEquals(TOPICS, read(file, false).size());
+    }
+
+    private static List<String> read(File file, boolean gzip) throws IOException {
+        InputStream in = new FileInputStream(file);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(gzip ? new GZIPInputStream(in) : in, "UTF-8"));
+        try {
+            List<String> lines = Lists.newArrayList();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+            }
+            return lines;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static List<String> lines(String s) {
+        return Lists.newArrayList(Splitter.on('\n').omitEmptyStrings().split(s));
+    }
+}
@@ -50,6 +50,16 @@ public class PersonalizedStreamTest extends LfTest {
         assertTrue(PersonalizedStream.deleteTopic(network, t));
     }
     
+    @Test
+    public void testNetworkTopicApiAsync() throws Exception {
+        Topic topic = PersonalizedStreamAsync.createOrUpdateTopic(network, "1", "UNO").get();
+        Topic t = PersonalizedStreamAsync.getTopic(network, "1").get();
+        assertNotNull(t);
+        assertEquals(t.getLabel(), topic.getLabel());
+        
+        assertTrue(PersonalizedStreamAsync.deleteTopic(network, t).get());
+    }
+    
     @Test
     public void testNetworkMultipleTopicApi() {
         List<Topic> topics = PersonalizedStream.createOrUpdateTopics(network, topicMap);
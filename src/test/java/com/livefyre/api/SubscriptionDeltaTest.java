@@ -0,0 +1,99 @@
+package com.livefyre.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.collect.Lists;
+import com.livefyre.Livefyre;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.StubServer;
+import com.livefyre.config.UnitTest;
+import com.livefyre.core.Network;
+import com.livefyre.dto.Subscription;
+import com.livefyre.dto.Topic;
+import com.livefyre.type.SubscriptionType;
+
+@Category(UnitTest.class)
+public class SubscriptionDeltaTest extends LfTest {
+    private final List<String> calls = Lists.newCopyOnWriteArrayList();
+    private StubServer server;
+    private Network network;
+    private String userToken;
+
+    @Before
+    public void setup() throws IOException {
+        server = StubServer.start(new StubServer.Handler() {
+            public void handle(StubServer.Request request) throws IOException {
+                String method = request.getMethod();
+                int count = request.getJson().getAsJsonArray(method.equals("PATCH") ? "delete" : "subscriptions").size();
+                calls.add(method + " " + count);
+                request.respond(200, String.format("{\"data\":{\"added\":%d,\"removed\":%d}}",
+                        method.equals("PATCH") ? 0 : count, method.equals("PATCH") ? count : 0));
+            }
+        });
+        network = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY);
+        network.setQuillUrl(server.getUrl());
+        userToken = network.buildUserAuthToken(USER_ID, USER_ID, DEFAULT_EXPIRES);
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    @Test
+    public void testSendsOnlyTheDelta() {
+        List<Subscription> current = subscriptions(0, 100);
+
+        Map<String, Integer> results = PersonalizedStream.replaceSubscriptionsByDelta(network, userToken, topics(1, 101), current);
+        assertEquals(Arrays.asList("POST 1", "PATCH 1"), calls);
+        assertEquals(Integer.valueOf(1), results.get("added"));
+        assertEquals(Integer.valueOf(1), results.get("removed"));
+
+        calls.clear();
+        results = PersonalizedStream.replaceSubscriptionsByDelta(network, userToken, topics(0, 100), current);
+        assertTrue(calls.isEmpty());
+        assertEquals(Integer.valueOf(0), results.get("added"));
+
+        results = PersonalizedStream.replaceSubscriptionsByDelta(network, userToken, topics(0, 90), current);
+        assertEquals(Arrays.asList("PATCH 10"), calls);
+        assertEquals(Integer.valueOf(10), results.get("removed"));
+    }
+
+    @Test
+    public void testFallsBackToReplace() {
+        PersonalizedStream.replaceSubscriptionsByDelta(network, userToken, topics(50, 150), subscriptions(0, 100));
+        assertEquals(Arrays.asList("PUT 100"), calls);
+
+        calls.clear();
+        PersonalizedStream.replaceSubscriptionsByDelta(network, userToken, Collections.<Topic>emptyList(), subscriptions(0, 3));
+        assertEquals(Arrays.asList("PATCH 3"), calls);
+    }
+
+    private List<Topic> topics(int from, int to) {
+        List<Topic> topics = Lists.newArrayList();
+        for (int i = from; i < to; i++) {
+            topics.add(Topic.create(network, String.valueOf(i), "label"));
+        }
+        return topics;
+    }
+
+    private List<Subscription> subscriptions(int from, int to) {
+        List<Subscription> subscriptions = Lists.newArrayList();
+        for (Topic topic : topics(from, to)) {
+            subscriptions.add(new Subscription(topic.getId(), network.getUrnForUser(USER_ID), SubscriptionType.personalStream, null));
+        }
+        return subscriptions;
+    }
+}
@@ -0,0 +1,79 @@
+package com.livefyre.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.livefyre.Livefyre;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.StubServer;
+import com.livefyre.config.UnitTest;
+import com.livefyre.core.Network;
+import com.sun.jersey.api.client.ClientResponse;
+
+@Category(UnitTest.class)
+public class TransportTest extends LfTest {
+    @Test
+    public void testSharedPerNetwork() {
+        Network network = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY);
+        Transport transport = network.getTransport();
+        assertNotNull(transport);
+        assertSame(transport, network.getTransport());
+        assertSame(transport, network.getSite(SITE_ID, SITE_KEY).getNetwork().getTransport());
+        
+        Transport other = new Transport(500, 5000, 2, 2);
+        network.setTransport(other);
+        assertSame(other, network.getTransport());
+        // the network owns its transport, so the replaced one is destroyed.
+        assertTrue(transport.getExecutor().isShutdown());
+        assertFalse(other.getExecutor().isShutdown());
+        other.destroy();
+    }
+    
+    @Test
+    public void testResources() {
+        Transport transport = new Transport();
+        assertEquals("https://test.quill.fyre.co/api", transport.quill("https://test.quill.fyre.co/api").getURI().toString());
+        assertEquals("https://test.bootstrap.fyre.co/api", transport.bootstrap("https://test.bootstrap.fyre.co/api").getURI().toString());
+        transport.destroy();
+    }
+
+    @Test
+    public void testConnectionHeldUntilResponseClosed() throws Exception {
+        StubServer server = StubServer.start(new StubServer.Handler() {
+            public void handle(StubServer.Request request) throws IOException {
+                request.respond(200, "{}");
+            }
+        });
+        final Transport transport = new Transport(1000, 1000, 1, 1);
+        final String url = server.getUrl() + "/";
+        try {
+            ClientResponse first = transport.quill(url).get(ClientResponse.class);
+            ListenableFuture<String> second = transport.submit(new Callable<String>() {
+                public String call() {
+                    return transport.quill(url).get(String.class);
+                }
+            });
+            Thread.sleep(100);
+            assertFalse(second.isDone());
+
+            first.close();
+            assertEquals("{}", second.get(10, TimeUnit.SECONDS));
+            // a read entity is closed too, so its connection is free again.
+            assertEquals("{}", transport.quill(url).get(String.class));
+        } finally {
+            transport.destroy();
+            server.stop();
+        }
+    }
+}
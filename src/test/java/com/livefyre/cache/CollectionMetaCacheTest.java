@@ -0,0 +1,59 @@
+package com.livefyre.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.livefyre.config.UnitTest;
+import com.livefyre.dto.Topic;
+import com.livefyre.model.CollectionData;
+import com.livefyre.type.CollectionType;
+
+@Category(UnitTest.class)
+public class CollectionMetaCacheTest {
+    private final AtomicInteger signed = new AtomicInteger();
+    private final Supplier<String> signer = new Supplier<String>() {
+        public String get() {
+            return "token" + signed.incrementAndGet();
+        }
+    };
+
+    @Test
+    public void testKeyedByContent() {
+        CollectionMetaCache cache = new CollectionMetaCache(10);
+        CollectionData data = new CollectionData(CollectionType.COMMENTS, "title", "articleId", "http://test.com");
+        assertEquals("token1", cache.get(data, "iss", "key", signer));
+        assertEquals("token1", cache.get(data, "iss", "key", signer));
+        assertEquals("token1", cache.get(
+                new CollectionData(CollectionType.COMMENTS, "title", "articleId", "http://test.com"), "iss", "key", signer));
+
+        assertEquals("token2", cache.get(data, "iss", "other key", signer));
+        assertEquals("token3", cache.get(data, "other iss", "key", signer));
+
+        data.setTitle("new title");
+        assertEquals("token4", cache.get(data, "iss", "key", signer));
+
+        data.setTopics(Lists.newArrayList(new Topic("id", "label", null, null)));
+        assertEquals("token5", cache.get(data, "iss", "key", signer));
+        data.getTopics().get(0).setLabel("new label");
+        assertEquals("token6", cache.get(data, "iss", "key", signer));
+        assertEquals("token6", cache.get(data, "iss", "key", signer));
+        assertEquals(6, signed.get());
+    }
+
+    @Test
+    public void testBounded() {
+        CollectionMetaCache cache = new CollectionMetaCache(2);
+        for (int i = 0; i < 10; i++) {
+            cache.get(new CollectionData(CollectionType.COMMENTS, "title", "article" + i, "http://test.com"), "iss", "key", signer);
+        }
+        assertEquals(2, cache.size());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,130 @@
+package com.livefyre.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.livefyre.Livefyre;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.UnitTest;
+import com.livefyre.core.Network;
+import com.livefyre.utils.JwtVerifier;
+import com.livefyre.utils.TokenClaims;
+
+@Category(UnitTest.class)
+public class TokenCacheTest extends LfTest {
+    private final AtomicInteger minted = new AtomicInteger();
+    private final FakeTicker ticker = new FakeTicker();
+    private final Supplier<String> minter = new Supplier<String>() {
+        public String get() {
+            return "token" + minted.incrementAndGet();
+        }
+    };
+
+    @Test
+    public void testReusesToken() {
+        TokenCache cache = new TokenCache(10, MoreExecutors.directExecutor());
+        CachedToken token = cache.get("key", 86400.0, minter);
+        assertEquals("token1", token.getToken());
+        assertEquals("lftoken token1", token.getAuthorizationHeader());
+        assertSame(token, cache.get("key", 86400.0, minter));
+        assertEquals("token2", cache.get("other", 86400.0, minter).getToken());
+        assertEquals(2, minted.get());
+    }
+
+    @Test
+    public void testNoLifetimeNotCached() {
+        TokenCache cache = new TokenCache(10, MoreExecutors.directExecutor());
+        assertEquals("token1", cache.get("key", 0.0, minter).getToken());
+        assertEquals("token2", cache.get("key", 0.0, minter).getToken());
+    }
+
+    @Test
+    public void testRefreshAndStale() {
+        TokenCache cache = new TokenCache(10, MoreExecutors.directExecutor(), ticker);
+        assertEquals("token1", cache.get("key", 100.0, minter).getToken());
+
+        ticker.advance(80, TimeUnit.SECONDS);
+        // due for refresh: still handed out, replaced in the background.
+        assertEquals("token1", cache.get("key", 100.0, minter).getToken());
+        assertEquals("token2", cache.get("key", 100.0, minter).getToken());
+
+        ticker.advance(95, TimeUnit.SECONDS);
+        // stale: never handed out.
+        assertEquals("token3", cache.get("key", 100.0, minter).getToken());
+    }
+
+    @Test
+    public void testFailedRefreshIsRetried() {
+        final AtomicBoolean failing = new AtomicBoolean();
+        Supplier<String> flaky = new Supplier<String>() {
+            public String get() {
+                if (failing.get()) {
+                    throw new IllegalStateException("signing failed");
+                }
+                return minter.get();
+            }
+        };
+        TokenCache cache = new TokenCache(10, MoreExecutors.directExecutor(), ticker);
+        assertEquals("token1", cache.get("key", 100.0, flaky).getToken());
+
+        ticker.advance(80, TimeUnit.SECONDS);
+        failing.set(true);
+        assertEquals("token1", cache.get("key", 100.0, flaky).getToken());
+        failing.set(false);
+        assertEquals("token1", cache.get("key", 100.0, flaky).getToken());
+        assertEquals("token2", cache.get("key", 100.0, flaky).getToken());
+    }
+
+    @Test
+    public void testNetworkTokens() {
+        Network network = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY);
+        String header = network.buildLivefyreAuthHeader();
+        assertTrue(header.startsWith("lftoken "));
+        assertTrue(network.validateLivefyreToken(header.substring("lftoken ".length())));
+        assertSame(header, network.buildLivefyreAuthHeader());
+
+        network.getData().setKey(NETWORK_KEY + "other");
+        assertNotEquals(header, network.buildLivefyreAuthHeader());
+    }
+
+    @Test
+    public void testCachedUserTokens() {
+        Network network = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY);
+        String token = network.getCachedUserAuthToken("user", "User", 3600.0);
+        TokenClaims claims = JwtVerifier.forKey(NETWORK_KEY).verify(token);
+        assertEquals("user", claims.getUserId());
+        assertEquals("User", claims.getDisplayName());
+        assertSame(token, network.getCachedUserAuthToken("user", "User", 3600.0));
+
+        assertNotEquals(token, network.getCachedUserAuthToken("user", "Other", 3600.0));
+        assertNotEquals(token, network.getCachedUserAuthToken("user2", "User", 3600.0));
+        network.getData().setKey(NETWORK_KEY + "other");
+        assertNotEquals(token, network.getCachedUserAuthToken("user", "User", 3600.0));
+    }
+
+    private static class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.livefyre.config;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.base.Splitter;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonObject;
+import com.livefyre.utils.LivefyreUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server that stands in for Livefyre in unit tests. Requests are handled concurrently.
+ * Point a network at it with network.setQuillUrl(server.getUrl()), and stop it once the test is done.
+ */
+public class StubServer {
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private StubServer(final Handler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("stub-server-%d").build());
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    handler.handle(new Request(exchange));
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    public static StubServer start(Handler handler) throws IOException {
+        StubServer stub = new StubServer(handler);
+        stub.server.start();
+        return stub;
+    }
+
+    /**
+     * @return the base url to send requests to, e.g. http://localhost:54321.
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public interface Handler {
+        void handle(Request request) throws IOException;
+    }
+
+    public static class Request {
+        private final HttpExchange exchange;
+        private final Map<String, String> query;
+        private String body;
+
+        private Request(HttpExchange exchange) {
+            this.exchange = exchange;
+            String raw = exchange.getRequestURI().getQuery();
+            this.query = raw == null ? Collections.<String, String>emptyMap()
+                    : Splitter.on('&').withKeyValueSeparator('=').split(raw);
+        }
+
+        /**
+         * @return the request's method, taking a _method query parameter into account, e.g. PATCH.
+         */
+        public String getMethod() {
+            return query.containsKey("_method") ? query.get("_method") : exchange.getRequestMethod();
+        }
+
+        public String getPath() {
+            return exchange.getRequestURI().getPath();
+        }
+
+        public Map<String, String> getQuery() {
+            return query;
+        }
+
+        /**
+         * @return the collection API method, e.g. create for /api/v3.0/site/{id}/collection/create/, or null.
+         */
+        public String getCollectionMethod() {
+            List<String> segments = Splitter.on('/').omitEmptyStrings().splitToList(getPath());
+            int i = segments.indexOf("collection");
+            return i < 0 || i + 1 >= segments.size() ? null : segments.get(i + 1);
+        }
+
+        public String getBody() throws IOException {
+            if (body == null) {
+                body = new String(ByteStreams.toByteArray(exchange.getRequestBody()), "UTF-8");
+            }
+            return body;
+        }
+
+        public JsonObject getJson() throws IOException {
+            return LivefyreUtil.stringToJson(getBody());
+        }
+
+        public void respond(int status, String body) throws IOException {
+            byte[] bytes = body.getBytes("UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+}
@@ -2,32 +2,54 @@ package com.livefyre.core;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.JsonObject;
 import com.livefyre.Livefyre;
 import com.livefyre.config.IntegrationTest;
 import com.livefyre.config.PojoTest;
+import com.livefyre.config.StubServer;
 import com.livefyre.config.UnitTest;
 import com.livefyre.dto.Topic;
 import com.livefyre.exceptions.ApiException;
 import com.livefyre.exceptions.LivefyreException;
 import com.livefyre.exceptions.TokenException;
+import com.livefyre.ledger.InMemoryChecksumLedger;
+import com.livefyre.ledger.LedgerEntry;
+import com.livefyre.ledger.MappedCollectionIndex;
 import com.livefyre.type.CollectionType;
 import com.livefyre.utils.LivefyreUtil;
+import com.sun.jersey.api.client.ClientHandlerException;
 
 public class CollectionTest extends PojoTest<Collection> {
     private static final String CHECKSUM = "8bcfca7fb2187b1dcb627506deceee32";
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
     private Site site;
     
     @Before
@@ -82,6 +104,23 @@ public class CollectionTest extends PojoTest<Collection> {
         assertEquals(id, collection.getData().getId());
     }
 
+    @Test
+    @Category(IntegrationTest.class)
+    public void testCreateUpdateCollectionAsync() throws Exception {
+        String name = "JavaCreateCollectionAsync" + Calendar.getInstance().getTimeInMillis();
+
+        Collection collection = site.buildCommentsCollection(name, name, URL).createOrUpdateAsync().get();
+        String otherId = collection.getCollectionContentAsync().get()
+                .getAsJsonObject("collectionSettings").get("collectionId").getAsString();
+        assertEquals(otherId, collection.getData().getId());
+
+        String id = collection.getData().getId();
+        collection.getData().setId(null);
+        collection.getData().setTitle(name+"super");
+        collection.createOrUpdateAsync().get();
+        assertEquals(id, collection.getData().getId());
+    }
+
     @Test
     @Category(IntegrationTest.class)
     public void testGetCollectionContent_fail() {
@@ -134,6 +173,155 @@ public class CollectionTest extends PojoTest<Collection> {
         assertEquals(decodedToken.get("iss").getAsString(), site.getNetwork().getUrn());
     }
     
+    @Test
+    @Category(UnitTest.class)
+    public void testCreateCollectionTokens() {
+        Collection first = site.buildCommentsCollection("title", "bulk1", "http://www.livefyre.com");
+        Collection second = site.buildCommentsCollection("title", "bulk2", "http://www.livefyre.com");
+        List<String> tokens = Collection.buildCollectionMetaTokens(Lists.newArrayList(first, second, first));
+        assertEquals(3, tokens.size());
+        assertEquals(first.buildCollectionMetaToken(), tokens.get(0));
+        assertEquals(second.buildCollectionMetaToken(), tokens.get(1));
+        assertEquals(tokens.get(0), tokens.get(2));
+        assertEquals("bulk2", LivefyreUtil.decodeJwt(tokens.get(1), SITE_KEY).get("articleId").getAsString());
+        
+        first.getData().setTitle("new title");
+        String token = first.buildCollectionMetaToken();
+        assertNotEquals(tokens.get(0), token);
+        assertEquals("new title", LivefyreUtil.decodeJwt(token, SITE_KEY).get("title").getAsString());
+    }
+    
+    @Test
+    @Category(UnitTest.class)
+    public void testLedgerSkipsUnchanged() {
+        Collection collection = site.buildCommentsCollection("title", "ledgered", "http://www.livefyre.com");
+        InMemoryChecksumLedger ledger = new InMemoryChecksumLedger();
+        ledger.put(SITE_ID, "ledgered", new LedgerEntry("42", collection.buildChecksum()));
+        site.getNetwork().setChecksumLedger(ledger);
+        // any call that does go out fails right away.
+        site.getNetwork().setQuillUrl("http://localhost:1");
+        
+        assertEquals("42", collection.createOrUpdate().getData().getId());
+        assertEquals("42", Futures.getUnchecked(collection.createOrUpdateAsync()).getData().getId());
+        
+        collection.getData().setTitle("new title");
+        try {
+            collection.createOrUpdate();
+            fail("changed collections should be sent");
+        } catch (ClientHandlerException e) {}
+    }
+    
+    @Test
+    @Category(UnitTest.class)
+    public void testUpsertRouting() throws Exception {
+        final List<String> calls = Collections.synchronizedList(Lists.<String>newArrayList());
+        final Set<String> existing = Collections.synchronizedSet(Sets.<String>newHashSet());
+        StubServer server = StubServer.start(new StubServer.Handler() {
+            public void handle(StubServer.Request request) throws IOException {
+                String method = request.getCollectionMethod();
+                calls.add(method);
+                int status = 200;
+                if (method.equals("create") && !existing.add("routed")) {
+                    status = 409;
+                } else if (method.equals("update") && !existing.contains("routed")) {
+                    status = 404;
+                }
+                request.respond(status, "{\"data\":{\"collectionId\":\"7\"}}");
+            }
+        });
+        try {
+            site.getNetwork().setQuillUrl(server.getUrl());
+            Collection collection = site.buildCommentsCollection("title", "routed", "http://www.livefyre.com");
+            existing.add("routed");
+            
+            assertEquals("7", collection.createOrUpdate().getData().getId());
+            assertEquals(Arrays.asList("create", "update"), calls);
+            
+            calls.clear();
+            collection.getData().setTitle("title 2");
+            collection.createOrUpdate();
+            collection.getData().setTitle("title 3");
+            Futures.getUnchecked(collection.createOrUpdateAsync());
+            assertEquals(Arrays.asList("update", "update"), calls);
+            
+            calls.clear();
+            existing.clear();
+            collection.getData().setTitle("title 4");
+            Futures.getUnchecked(collection.createOrUpdateAsync());
+            assertEquals(Arrays.asList("update", "create"), calls);
+        } finally {
+            server.stop();
+        }
+    }
+    
+    @Test
+    @Category(UnitTest.class)
+    public void testRejectedFallbackFailsFuture() throws Exception {
+        final Network network = site.getNetwork();
+        StubServer server = StubServer.start(new StubServer.Handler() {
+            public void handle(StubServer.Request request) throws IOException {
+                // the transport stops taking calls before the create's 409 arrives.
+                network.getTransport().getExecutor().shutdown();
+                request.respond(409, "{}");
+            }
+        });
+        try {
+            network.setQuillUrl(server.getUrl());
+            ListenableFuture<Collection> result = site.buildCommentsCollection("title", "rejected", "http://www.livefyre.com")
+                    .createOrUpdateAsync();
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("a fallback the transport rejects should fail the future");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        } finally {
+            network.getTransport().destroy();
+            server.stop();
+        }
+    }
+    
+    @Test
+    @Category(UnitTest.class)
+    public void testReadOnlyLedger() throws Exception {
+        File file = new File(folder.getRoot(), "index");
+        MappedCollectionIndex index = MappedCollectionIndex.open(file);
+        index.put(SITE_ID, "indexed", new LedgerEntry("42", "checksum"));
+        index.close();
+        StubServer server = StubServer.start(new StubServer.Handler() {
+            public void handle(StubServer.Request request) throws IOException {
+                request.respond(200, "{\"data\":{\"collectionId\":\"7\"}}");
+            }
+        });
+        index = MappedCollectionIndex.openReadOnly(file);
+        try {
+            site.getNetwork().setChecksumLedger(index);
+            site.getNetwork().setQuillUrl(server.getUrl());
+            
+            assertEquals("42", site.buildCommentsCollection("title", "indexed", "http://www.livefyre.com").getData().getId());
+            assertEquals("7", site.buildCommentsCollection("title", "new", "http://www.livefyre.com").createOrUpdate()
+                    .getData().getId());
+            assertEquals("7", Futures.getUnchecked(site.buildCommentsCollection("title", "new", "http://www.livefyre.com")
+                    .createOrUpdateAsync()).getData().getId());
+            assertNull(index.get(SITE_ID, "new"));
+        } finally {
+            index.close();
+            server.stop();
+        }
+    }
+    
+    @Test
+    @Category(UnitTest.class)
+    public void testLedgerRestoresId() {
+        InMemoryChecksumLedger ledger = new InMemoryChecksumLedger();
+        ledger.put(SITE_ID, "restored", new LedgerEntry("43", "checksum"));
+        site.getNetwork().setChecksumLedger(ledger);
+        
+        assertEquals("43", site.buildCommentsCollection("title", "restored", "http://www.livefyre.com").getData().getId());
+        assertEquals(site.getUrn() + ":collection=43",
+                site.buildCommentsCollection("title", "restored", "http://www.livefyre.com").getUrn());
+    }
+    
     @Test
     @Category(UnitTest.class)
     public void testCollectionChecksum() {
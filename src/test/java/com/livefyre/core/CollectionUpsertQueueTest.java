@@ -0,0 +1,138 @@
+package com.livefyre.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.livefyre.Livefyre;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.StubServer;
+import com.livefyre.config.UnitTest;
+import com.livefyre.exceptions.LivefyreException;
+import com.livefyre.ledger.InMemoryChecksumLedger;
+import com.livefyre.ledger.LedgerEntry;
+
+@Category(UnitTest.class)
+public class CollectionUpsertQueueTest extends LfTest {
+    private final AtomicInteger calls = new AtomicInteger();
+    private StubServer server;
+    private Site site;
+
+    @Before
+    public void setup() throws IOException {
+        server = StubServer.start(new StubServer.Handler() {
+            public void handle(StubServer.Request request) throws IOException {
+                calls.incrementAndGet();
+                request.respond(200, "{\"data\":{\"collectionId\":\"9\"}}");
+            }
+        });
+        site = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY).getSite(SITE_ID, SITE_KEY);
+        site.getNetwork().setQuillUrl(server.getUrl());
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    @Test
+    public void testCoalesces() throws Exception {
+        CollectionUpsertQueue queue = new CollectionUpsertQueue(site, TimeUnit.MINUTES.toMillis(1), 2);
+        List<Collection> collections = Lists.newArrayList();
+        List<ListenableFuture<String>> results = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            Collection collection = site.buildCommentsCollection("title " + i, "queued", URL);
+            collections.add(collection);
+            results.add(queue.submit(collection));
+        }
+        ListenableFuture<String> other = queue.submit(site.buildCommentsCollection("title", "queued2", URL));
+        assertEquals(2, queue.size());
+        assertFalse(results.get(0).isDone());
+
+        queue.flush();
+        for (ListenableFuture<String> result : results) {
+            assertEquals("9", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals("9", other.get(10, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+        assertEquals("9", collections.get(4).getData().getId());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testFlushesManyUnchanged() throws Exception {
+        InMemoryChecksumLedger ledger = new InMemoryChecksumLedger();
+        site.getNetwork().setChecksumLedger(ledger);
+        CollectionUpsertQueue queue = new CollectionUpsertQueue(site, TimeUnit.MINUTES.toMillis(1), 4);
+        List<ListenableFuture<String>> results = Lists.newArrayList();
+        for (int i = 0; i < 5000; i++) {
+            Collection collection = site.buildCommentsCollection("title", "unchanged" + i, URL);
+            ledger.put(SITE_ID, "unchanged" + i, new LedgerEntry(String.valueOf(i), collection.buildChecksum()));
+            results.add(queue.submit(collection));
+        }
+
+        // each upsert completes right away, and frees the slot for the next one.
+        queue.flush();
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(String.valueOf(i), results.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(0, queue.size());
+        assertEquals(0, calls.get());
+        queue.shutdown();
+    }
+
+    @Test
+    public void testFlushesAfterWindow() throws Exception {
+        site.setUpsertQueue(new CollectionUpsertQueue(site, 50, 1));
+        ListenableFuture<String> first = site.buildCommentsCollection("title", "windowed", URL).createOrUpdateLater();
+        ListenableFuture<String> second = site.buildCommentsCollection("title", "windowed2", URL).createOrUpdateLater();
+        assertEquals("9", first.get(10, TimeUnit.SECONDS));
+        assertEquals("9", second.get(10, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+        site.getUpsertQueue().shutdown();
+    }
+
+    @Test
+    public void testSharedBySiteId() throws Exception {
+        Network network = site.getNetwork();
+        Site same = network.getSite(SITE_ID, SITE_KEY);
+        assertSame(site.getUpsertQueue(), same.getUpsertQueue());
+        assertNotSame(site.getUpsertQueue(), network.getSite(SITE_ID + "2", SITE_KEY).getUpsertQueue());
+
+        CollectionUpsertQueue queue = new CollectionUpsertQueue(site);
+        ListenableFuture<String> result = queue.submit(same.buildCommentsCollection("title", "queued", URL));
+        queue.flush();
+        assertEquals("9", result.get(10, TimeUnit.SECONDS));
+        network.getUpsertQueues().shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherSite() {
+        Site other = site.getNetwork().getSite(SITE_ID + "2", SITE_KEY);
+        new CollectionUpsertQueue(site).submit(other.buildCommentsCollection("title", "queued", URL));
+    }
+
+    @Test
+    public void testShutdown() {
+        CollectionUpsertQueue queue = new CollectionUpsertQueue(site);
+        queue.shutdown();
+        try {
+            queue.submit(site.buildCommentsCollection("title", "queued", URL));
+            fail("queues that are shut down should not take upserts");
+        } catch (LivefyreException e) {}
+    }
+}
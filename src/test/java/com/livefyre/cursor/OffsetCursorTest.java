@@ -0,0 +1,148 @@
+package com.livefyre.cursor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.UnitTest;
+import com.livefyre.cursor.OffsetCursor.PageIterator;
+import com.livefyre.exceptions.ApiException;
+
+@Category(UnitTest.class)
+public class OffsetCursorTest extends LfTest {
+    private final ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPagesInOrder() {
+        List<Integer> items = Lists.newArrayList(cursor(250, 100, 2));
+        assertEquals(250, items.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(Integer.valueOf(i), items.get(i));
+        }
+        assertTrue(fetches.get() >= 3 && fetches.get() <= 5);
+    }
+
+    @Test
+    public void testExactMultipleAndEmpty() {
+        assertEquals(200, Lists.newArrayList(cursor(200, 100, 0)).size());
+        assertFalse(cursor(0, 100, 1).iterator().hasNext());
+    }
+
+    @Test
+    public void testPagesFromOffset() {
+        Iterator<List<Integer>> pages = cursor(250, 100, 1).pages(120);
+        List<Integer> first = pages.next();
+        assertEquals(100, first.size());
+        assertEquals(Integer.valueOf(120), first.get(0));
+        assertEquals(30, pages.next().size());
+        assertFalse(pages.hasNext());
+    }
+
+    @Test
+    public void testLazy() {
+        Iterator<Integer> it = cursor(1000, 10, 1).iterator();
+        assertEquals(0, fetches.get());
+        it.next();
+        assertTrue(fetches.get() <= 2);
+    }
+
+    @Test
+    public void testFailurePropagates() {
+        OffsetCursor<Integer> failing = new OffsetCursor<Integer>(executor, 10, 1) {
+            @Override
+            protected List<Integer> fetchPage(int limit, int offset) {
+                throw new ApiException(500);
+            }
+        };
+        try {
+            failing.iterator().next();
+            fail("page failures should surface to the caller");
+        } catch (ApiException e) {}
+    }
+
+    @Test
+    public void testCloseCancelsPrefetch() throws Exception {
+        OffsetCursor<Integer> slow = new OffsetCursor<Integer>(executor, 10, 3) {
+            @Override
+            protected List<Integer> fetchPage(int limit, int offset) {
+                if (offset == 0) {
+                    return Collections.nCopies(limit, 0);
+                }
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Collections.emptyList();
+            }
+        };
+        PageIterator<Integer> pages = slow.pages(0);
+        assertEquals(10, pages.next().size());
+        pages.close();
+        assertFalse(pages.hasNext());
+
+        // the pages requested ahead would take a minute each if they were not cancelled.
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailureCancelsPrefetch() throws Exception {
+        OffsetCursor<Integer> failing = new OffsetCursor<Integer>(executor, 10, 2) {
+            @Override
+            protected List<Integer> fetchPage(int limit, int offset) {
+                if (offset == 0) {
+                    throw new ApiException(500);
+                }
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Collections.nCopies(limit, offset);
+            }
+        };
+        try {
+            failing.pages(0).next();
+            fail("page failures should surface to the caller");
+        } catch (ApiException e) {}
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private OffsetCursor<Integer> cursor(final int total, int pageSize, int prefetch) {
+        return new OffsetCursor<Integer>(executor, pageSize, prefetch) {
+            @Override
+            protected List<Integer> fetchPage(int limit, int offset) {
+                fetches.incrementAndGet();
+                List<Integer> page = Lists.newArrayList();
+                for (int i = offset; i < Math.min(total, offset + limit); i++) {
+                    page.add(i);
+                }
+                return page;
+            }
+        };
+    }
+}
@@ -14,6 +14,7 @@ import com.livefyre.config.IntegrationTest;
 import com.livefyre.config.PojoTest;
 import com.livefyre.config.UnitTest;
 import com.livefyre.core.Network;
+import com.livefyre.dto.TimelinePage;
 import com.livefyre.factory.CursorFactory;
 
 public class TimelineCursorTest extends PojoTest<TimelineCursor> {
@@ -26,6 +27,9 @@ public class TimelineCursorTest extends PojoTest<TimelineCursor> {
         ch.next();
         JsonObject json = ch.previous();
         assertNotNull(json);
+        
+        TimelinePage page = ch.nextPage();
+        assertNotNull(page.getEvents());
     }
     
     @Test
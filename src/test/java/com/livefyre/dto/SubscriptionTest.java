@@ -4,10 +4,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.io.StringReader;
+
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import com.livefyre.config.PojoTest;
 import com.livefyre.config.UnitTest;
 import com.livefyre.type.SubscriptionType;
@@ -54,4 +58,22 @@ public class SubscriptionTest extends PojoTest<Subscription> {
             fail("this should throw an error");
         } catch (IllegalArgumentException e) {}
     }
+    
+    @Test
+    public void testSerializedFromJsonReader() throws IOException {
+        Subscription sub = Subscription.serializeFromJson(new JsonReader(new StringReader(
+                "{\"to\":\"to\",\"by\":\"by\",\"type\":1,\"createdAt\":10,\"extra\":{\"a\":[1]}}")));
+        assertEquals(TO, sub.getTo());
+        assertEquals(BY, sub.getBy());
+        assertEquals(TYPE.toString(), sub.getType());
+        assertEquals(CREATED_AT, sub.getCreatedAt());
+        
+        sub = Subscription.serializeFromJson(new JsonReader(new StringReader("{\"type\":\"personalStream\"}")));
+        assertEquals(TYPE.toString(), sub.getType());
+        
+        try {
+            Subscription.serializeFromJson(new JsonReader(new StringReader("{\"type\":0}")));
+            fail("this should throw an error");
+        } catch (IllegalArgumentException e) {}
+    }
 }
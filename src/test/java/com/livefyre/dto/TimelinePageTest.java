@@ -0,0 +1,123 @@
+package com.livefyre.dto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.gson.JsonObject;
+import com.livefyre.config.UnitTest;
+import com.livefyre.utils.LivefyreUtil;
+
+@Category(UnitTest.class)
+public class TimelinePageTest {
+    private static final String BODY = "{\"data\": {\"timeline\": ["
+            + "{\"type\": \"comment\", \"resource\": \"urn:livefyre:test.fyre.co:user=a:personalStream\","
+            + " \"contentId\": \"c1\", \"createdAt\": 1400000000, \"updatedAt\": \"1400000001\","
+            + " \"extra\": {\"text\": \"a } ] \\\" tricky, one\"}},"
+            + "{\"type\": \"like\", \"resource\": \"r\\u00e9s\", \"contentId\": null, \"createdAt\": 1.4E9},"
+            + "{\"type\": \"comment\", \"contentId\": \"c3\"}"
+            + "], \"states\": {}},"
+            + " \"meta\": {\"cursor\": {\"hasNext\": false, \"next\": \"2014-05-13T16:53:20.000Z\", \"hasPrev\": true, \"prev\": null}}}";
+
+    @Test
+    public void testCursor() {
+        TimelinePage page = page(BODY);
+        assertFalse(page.hasNext());
+        assertTrue(page.hasPrevious());
+        assertEquals("2014-05-13T16:53:20.000Z", page.getNextCursor());
+        assertNull(page.getPreviousCursor());
+    }
+
+    @Test
+    public void testEvents() {
+        List<TimelineEvent> events = page(BODY).getEvents();
+        assertEquals(3, events.size());
+
+        TimelineEvent event = events.get(0);
+        assertEquals("comment", event.getType());
+        assertEquals("urn:livefyre:test.fyre.co:user=a:personalStream", event.getResource());
+        assertEquals("c1", event.getContentId());
+        assertEquals(Long.valueOf(1400000000L), event.getCreatedAt());
+        assertEquals(Long.valueOf(1400000001L), event.getUpdatedAt());
+        assertEquals(1400000000000L, event.createdAtDate().getTime());
+        assertEquals("{\"text\": \"a } ] \\\" tricky, one\"}", event.getString("extra"));
+        assertEquals("a } ] \" tricky, one", event.toJson().getAsJsonObject("extra").get("text").getAsString());
+
+        event = events.get(1);
+        assertEquals("rés", event.getResource());
+        assertTrue(event.has("contentId"));
+        assertNull(event.getContentId());
+        assertEquals(Long.valueOf(1400000000L), event.getCreatedAt());
+        assertNull(event.getUpdatedAt());
+        assertNull(event.updatedAtDate());
+        assertFalse(event.has("updatedAt"));
+    }
+
+    @Test
+    public void testNumbers() {
+        TimelineEvent event = page("{\"data\": {\"timeline\": [{\"a\": 1.5, \"b\": -2.5e2, \"c\": 12345678901234567,"
+                + " \"d\": 1E+3, \"e\": \"text\"}]}}").getEvents().get(0);
+        assertEquals(Long.valueOf(1), event.getLong("a"));
+        assertEquals(Double.valueOf(1.5), event.getDouble("a"));
+        assertEquals(Long.valueOf(-250), event.getLong("b"));
+        assertEquals(Double.valueOf(-250), event.getDouble("b"));
+        assertEquals(Long.valueOf(12345678901234567L), event.getLong("c"));
+        assertEquals(Long.valueOf(1000), event.getLong("d"));
+        assertNull(event.getDouble("missing"));
+        try {
+            event.getLong("e");
+            fail("strings that are not numbers should not parse");
+        } catch (IllegalStateException e) {}
+    }
+
+    @Test
+    public void testFilter() {
+        TimelinePage page = page(BODY);
+        List<TimelineEvent> comments = page.getEvents("comment");
+        assertEquals(2, comments.size());
+        assertEquals("c3", comments.get(1).getContentId());
+        assertEquals(3, page.getEvents("comment", "like").size());
+        assertEquals(0, page.getEvents("share").size());
+    }
+
+    @Test
+    public void testToJson() {
+        JsonObject json = page(BODY).toJson();
+        assertEquals(LivefyreUtil.stringToJson(BODY), json);
+    }
+
+    @Test
+    public void testEmpty() {
+        TimelinePage page = page("{\"data\":{},\"meta\":{\"cursor\":{\"hasNext\":true,\"next\":null}}}");
+        assertTrue(page.hasNext());
+        assertNull(page.getNextCursor());
+        assertEquals(0, page.getEvents().size());
+
+        page = page("{\"data\":{\"timeline\":[]}}");
+        assertFalse(page.hasNext());
+        assertEquals(0, page.getEvents().size());
+    }
+
+    @Test
+    public void testMalformed() {
+        String[] bodies = { "", "{\"data\": {\"timeline\": [{}}", "{\"data\" {}}", "[1, 2]" };
+        for (String body : bodies) {
+            try {
+                page(body);
+                fail("body should not parse: " + body);
+            } catch (IllegalStateException e) {}
+        }
+    }
+
+    private static TimelinePage page(String body) {
+        return TimelinePage.parse(body.getBytes(Charset.forName("UTF-8")));
+    }
+}
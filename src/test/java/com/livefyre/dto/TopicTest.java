@@ -3,12 +3,15 @@ package com.livefyre.dto;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.Date;
 
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import com.livefyre.Livefyre;
 import com.livefyre.config.PojoTest;
 import com.livefyre.config.UnitTest;
@@ -60,6 +63,16 @@ public class TopicTest extends PojoTest<Topic> {
         assertEquals(MODIFIED_AT, topic.getModifiedAt());
     }
     
+    @Test
+    public void testSerializeFromJsonReader() throws IOException {
+        Topic topic = Topic.serializeFromJson(new JsonReader(new StringReader(
+                "{\"id\":\"id\",\"extra\":[{}],\"label\":\"label\",\"createdAt\":10,\"modifiedAt\":1000}")));
+        assertEquals(ID, topic.getId());
+        assertEquals(LABEL, topic.getLabel());
+        assertEquals(CREATED_AT, topic.getCreatedAt());
+        assertEquals(MODIFIED_AT, topic.getModifiedAt());
+    }
+    
     @Test
     public void testGenerateUrn() {
         Network network = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY);
@@ -0,0 +1,84 @@
+package com.livefyre.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.livefyre.config.UnitTest;
+import com.livefyre.dto.Envelope;
+import com.livefyre.dto.Subscription;
+import com.livefyre.dto.Topic;
+import com.livefyre.model.CollectionData;
+import com.livefyre.type.CollectionType;
+import com.livefyre.type.SubscriptionType;
+
+@Category(UnitTest.class)
+public class GsonFactoryTest {
+    private static final Gson DEFAULT = new Gson();
+    private static final List<Topic> TOPICS = ImmutableList.of(
+            new Topic("urn:livefyre:test.fyre.co:topic=1", "<b>'1'</b> & é", 10, 20),
+            new Topic("urn:livefyre:test.fyre.co:topic=2", null, null, 30));
+
+    @Test
+    public void testShared() {
+        assertSame(GsonFactory.getGson(), GsonFactory.getGson());
+    }
+
+    @Test
+    public void testTopicMatchesReflection() {
+        Gson gson = GsonFactory.getGson();
+        for (Topic topic : TOPICS) {
+            String json = gson.toJson(topic);
+            assertEquals(DEFAULT.toJson(topic), json);
+
+            Topic read = gson.fromJson(json, Topic.class);
+            assertEquals(topic.getId(), read.getId());
+            assertEquals(topic.getLabel(), read.getLabel());
+            assertEquals(topic.getCreatedAt(), read.getCreatedAt());
+            assertEquals(topic.getModifiedAt(), read.getModifiedAt());
+        }
+    }
+
+    @Test
+    public void testSubscriptionMatchesReflection() {
+        Subscription sub = new Subscription("to", "by", SubscriptionType.personalStream, 10);
+        String json = GsonFactory.getGson().toJson(sub);
+        assertEquals(DEFAULT.toJson(sub), json);
+
+        Subscription read = GsonFactory.getGson().fromJson(json, Subscription.class);
+        assertEquals(sub.getTo(), read.getTo());
+        assertEquals(sub.getType(), read.getType());
+        assertEquals(sub.getCreatedAt(), read.getCreatedAt());
+
+        sub = new Subscription("to", "by", SubscriptionType.personalStream, null);
+        assertEquals(DEFAULT.toJson(sub), GsonFactory.getGson().toJson(sub));
+    }
+
+    @Test
+    public void testCollectionDataUnchanged() {
+        CollectionData data = new CollectionData(CollectionType.COMMENTS, "<title>", "articleId", "http://test.com");
+        data.setTags("a,b").setTopics(TOPICS).setId("id");
+        assertEquals(DEFAULT.toJson(data), GsonFactory.getGson().toJson(data));
+    }
+
+    @Test
+    public void testEnvelopesMatchMaps() {
+        Gson gson = GsonFactory.getGson();
+        assertEquals(DEFAULT.toJson(ImmutableMap.of("topics", TOPICS)),
+                gson.toJson(Envelope.ofTopics("topics", TOPICS)));
+
+        List<String> ids = ImmutableList.of("id1", "id=2");
+        assertEquals(DEFAULT.toJson(ImmutableMap.of("delete", ids)), gson.toJson(Envelope.ofIds("delete", ids)));
+
+        List<Subscription> subs = ImmutableList.of(new Subscription("to", "by", SubscriptionType.personalStream, null));
+        assertEquals(DEFAULT.toJson(ImmutableMap.of("subscriptions", subs)),
+                gson.toJson(Envelope.ofSubscriptions("subscriptions", subs)));
+    }
+}
@@ -0,0 +1,210 @@
+package com.livefyre.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.livefyre.Livefyre;
+import com.livefyre.api.PersonalizedStream;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.StubServer;
+import com.livefyre.config.UnitTest;
+import com.livefyre.core.Network;
+import com.livefyre.exceptions.ApiException;
+import com.sun.jersey.api.client.ClientHandlerException;
+
+@Category(UnitTest.class)
+public class MappedMutationJournalTest extends LfTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSurvivesReopen() throws Exception {
+        File dir = new File(folder.getRoot(), "journal");
+        MappedMutationJournal journal = MappedMutationJournal.open(dir);
+        long first = journal.record(new Mutation("POST", "/a/", false, "{}", null));
+        long second = journal.record(new Mutation("PUT", "/b/", true, "{\"ä\":1}", "token"));
+        journal.acknowledge(first);
+        journal.close();
+
+        journal = MappedMutationJournal.open(dir);
+        Map<Long, Mutation> pending = journal.pending();
+        assertEquals(1, pending.size());
+        Mutation mutation = pending.get(second);
+        assertEquals("PUT", mutation.getMethod());
+        assertEquals("/b/", mutation.getPath());
+        assertTrue(mutation.isPatch());
+        assertEquals("{\"ä\":1}", mutation.getBody());
+        assertEquals("token", mutation.getUserToken());
+
+        long third = journal.record(new Mutation("POST", "/c/", false, "{}", null));
+        assertTrue(third > second);
+        journal.acknowledge(second);
+        journal.close();
+
+        journal = MappedMutationJournal.open(dir);
+        assertEquals(1, journal.pending().size());
+        assertNull(journal.pending().get(third).getUserToken());
+        journal.close();
+    }
+
+    @Test
+    public void testStopsAtTornRecord() throws Exception {
+        File dir = new File(folder.getRoot(), "journal");
+        MappedMutationJournal journal = MappedMutationJournal.open(dir);
+        journal.record(new Mutation("POST", "/a/", false, "{}", null));
+        journal.record(new Mutation("POST", "/b/", false, "AAAAAAAA", null));
+        journal.close();
+
+        for (File file : dir.listFiles()) {
+            byte[] bytes = Files.toByteArray(file);
+            int at = new String(bytes, "ISO-8859-1").indexOf("AAAAAAAA");
+            if (at >= 0) {
+                bytes[at] = 'B';
+                Files.write(bytes, file);
+            }
+        }
+
+        journal = MappedMutationJournal.open(dir);
+        assertEquals(1, journal.pending().size());
+        assertEquals("/a/", journal.pending().values().iterator().next().getPath());
+        journal.close();
+    }
+
+    @Test
+    public void testDeletesAcknowledgedSegments() throws Exception {
+        File dir = new File(folder.getRoot(), "journal");
+        MappedMutationJournal journal = MappedMutationJournal.open(dir, 256);
+        List<Long> ids = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            ids.add(journal.record(new Mutation("POST", "/a/", false, "{\"i\":" + i + "}", null)));
+        }
+        ids.add(journal.record(new Mutation("POST", "/a/", false, StringUtils.repeat('x', 1000), null)));
+        assertTrue(journal.getSegmentCount() > 3);
+
+        for (Long id : ids.subList(1, ids.size())) {
+            journal.acknowledge(id);
+        }
+        // the oldest segment still holds an unacknowledged call, so nothing can go yet.
+        assertTrue(journal.getSegmentCount() > 3);
+        journal.acknowledge(ids.get(0));
+        assertEquals(1, journal.getSegmentCount());
+        journal.close();
+
+        journal = MappedMutationJournal.open(dir, 256);
+        assertTrue(journal.pending().isEmpty());
+        assertEquals(1, dir.list().length);
+        journal.close();
+    }
+
+    @Test
+    public void testConcurrentRecords() throws Exception {
+        File dir = new File(folder.getRoot(), "journal");
+        final MappedMutationJournal journal = MappedMutationJournal.open(dir, 4096);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Long>> futures = Lists.newArrayList();
+        for (int i = 0; i < 500; i++) {
+            final int n = i;
+            futures.add(executor.submit(new Callable<Long>() {
+                public Long call() {
+                    long id = journal.record(new Mutation("POST", "/a/", false, "{\"i\":" + n + "}", null));
+                    if (n % 2 == 0) {
+                        journal.acknowledge(id);
+                    }
+                    return id;
+                }
+            }));
+        }
+        Set<Long> ids = Sets.newHashSet();
+        for (Future<Long> future : futures) {
+            ids.add(future.get());
+        }
+        executor.shutdown();
+        assertEquals(500, ids.size());
+        journal.close();
+
+        MappedMutationJournal reopened = MappedMutationJournal.open(dir, 4096);
+        assertEquals(250, reopened.pending().size());
+        reopened.close();
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final List<String> methods = Lists.newCopyOnWriteArrayList();
+        StubServer server = StubServer.start(new StubServer.Handler() {
+            public void handle(StubServer.Request request) throws IOException {
+                methods.add(request.getMethod());
+                request.respond(calls.incrementAndGet() <= 2 ? 503 : 200, "{\"data\":{\"deleted\":1}}");
+            }
+        });
+        MappedMutationJournal journal = MappedMutationJournal.open(new File(folder.getRoot(), "journal"));
+        try {
+            Network network = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY);
+            network.setQuillUrl(server.getUrl());
+            network.setMutationJournal(journal);
+
+            // failures reach the caller, so they are not left to replay.
+            try {
+                PersonalizedStream.createOrUpdateTopic(network, "1", "one");
+                fail("503s should be thrown");
+            } catch (ApiException e) {}
+            assertTrue(journal.pending().isEmpty());
+
+            // calls cut off by a crash are.
+            String path = "/" + network.getUrn() + ":topics/";
+            journal.record(new Mutation("POST", path, false, "{\"topics\":[]}", null));
+            journal.record(new Mutation("POST", path, true, "{\"delete\":[]}", null));
+            assertEquals(0, PersonalizedStream.replayMutations(network));
+            assertEquals(2, journal.pending().size());
+
+            assertEquals(2, PersonalizedStream.replayMutations(network));
+            assertTrue(journal.pending().isEmpty());
+            assertEquals("POST", methods.get(2));
+            assertEquals("PATCH", methods.get(3));
+            assertFalse(PersonalizedStream.replayMutations(network) > 0);
+        } finally {
+            journal.close();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testFailedSendNotPending() throws Exception {
+        MappedMutationJournal journal = MappedMutationJournal.open(new File(folder.getRoot(), "journal"));
+        try {
+            Network network = Livefyre.getNetwork(NETWORK_NAME, NETWORK_KEY);
+            network.setQuillUrl("http://localhost:1");
+            network.setMutationJournal(journal);
+            try {
+                PersonalizedStream.createOrUpdateTopic(network, "1", "one");
+                fail("unreachable hosts should be thrown");
+            } catch (ClientHandlerException e) {}
+            assertTrue(journal.pending().isEmpty());
+        } finally {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.livefyre.ledger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.livefyre.config.UnitTest;
+
+@Category(UnitTest.class)
+public class FileChecksumLedgerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSurvivesReopen() throws Exception {
+        File file = new File(folder.getRoot(), "ledger");
+        FileChecksumLedger ledger = new FileChecksumLedger(file);
+        ledger.put("site", "article", new LedgerEntry("1", "a"));
+        ledger.put("site", "ärticle\n2", new LedgerEntry("2", "b"));
+        ledger.close();
+
+        ledger = new FileChecksumLedger(file);
+        assertEquals(new LedgerEntry("1", "a"), ledger.get("site", "article"));
+        assertEquals(new LedgerEntry("2", "b"), ledger.get("site", "ärticle\n2"));
+        assertNull(ledger.get("site", "other"));
+        ledger.close();
+    }
+
+    @Test
+    public void testDropsPartialRecord() throws Exception {
+        File file = new File(folder.getRoot(), "ledger");
+        FileChecksumLedger ledger = new FileChecksumLedger(file);
+        ledger.put("site", "article", new LedgerEntry("1", "a"));
+        ledger.put("site", "article2", new LedgerEntry("2", "b"));
+        ledger.close();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        ledger = new FileChecksumLedger(file);
+        assertEquals(1, ledger.size());
+        assertNull(ledger.get("site", "article2"));
+        ledger.put("site", "article2", new LedgerEntry("2", "c"));
+        ledger.close();
+
+        ledger = new FileChecksumLedger(file);
+        assertEquals(new LedgerEntry("2", "c"), ledger.get("site", "article2"));
+        ledger.close();
+    }
+
+    @Test
+    public void testDropsGarbledRecord() throws Exception {
+        File file = new File(folder.getRoot(), "ledger");
+        FileChecksumLedger ledger = new FileChecksumLedger(file);
+        ledger.put("site", "article", new LedgerEntry("1", "a"));
+        ledger.close();
+        long length = file.length();
+
+        // a record whose length made it to disk, but not its bytes.
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[] { 0, 2, (byte) 0xe0, 0 });
+        out.close();
+
+        ledger = new FileChecksumLedger(file);
+        assertEquals(1, ledger.size());
+        assertEquals(length, file.length());
+        ledger.put("site", "article2", new LedgerEntry("2", "b"));
+        ledger.close();
+
+        ledger = new FileChecksumLedger(file);
+        assertEquals(new LedgerEntry("2", "b"), ledger.get("site", "article2"));
+        ledger.close();
+    }
+
+    @Test
+    public void testCompacts() throws Exception {
+        File file = new File(folder.getRoot(), "ledger");
+        FileChecksumLedger ledger = new FileChecksumLedger(file);
+        for (int i = 0; i < 100; i++) {
+            ledger.put("site", "article", new LedgerEntry("1", "checksum" + i));
+            // unchanged entries are not written again.
+            ledger.put("site", "article", new LedgerEntry("1", "checksum" + i));
+        }
+        ledger.close();
+        long length = file.length();
+
+        ledger = new FileChecksumLedger(file);
+        assertTrue(file.length() < length / 50);
+        assertEquals("checksum99", ledger.get("site", "article").getChecksum());
+        ledger.close();
+    }
+}
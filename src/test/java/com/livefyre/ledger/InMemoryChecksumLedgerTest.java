@@ -0,0 +1,26 @@
+package com.livefyre.ledger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.livefyre.config.UnitTest;
+
+@Category(UnitTest.class)
+public class InMemoryChecksumLedgerTest {
+    @Test
+    public void testPutGet() {
+        InMemoryChecksumLedger ledger = new InMemoryChecksumLedger();
+        assertNull(ledger.get("site", "article"));
+
+        ledger.put("site", "article", new LedgerEntry("1", "checksum"));
+        assertEquals(new LedgerEntry("1", "checksum"), ledger.get("site", "article"));
+        assertNull(ledger.get("other site", "article"));
+
+        ledger.put("site", "article", new LedgerEntry("1", "new checksum"));
+        assertEquals("new checksum", ledger.get("site", "article").getChecksum());
+        assertEquals(1, ledger.size());
+    }
+}
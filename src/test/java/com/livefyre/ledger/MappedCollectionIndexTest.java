@@ -0,0 +1,83 @@
+package com.livefyre.ledger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.Files;
+import com.livefyre.config.UnitTest;
+
+@Category(UnitTest.class)
+public class MappedCollectionIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSurvivesReopen() throws Exception {
+        File file = new File(folder.getRoot(), "index");
+        MappedCollectionIndex index = MappedCollectionIndex.open(file);
+        index.put("site", "article", new LedgerEntry("1", "a"));
+        index.put("site", "ärticle\n2", new LedgerEntry("2", "b"));
+        index.put("site", "article", new LedgerEntry("1", "c"));
+        index.put("site", "", new LedgerEntry("3", ""));
+        assertEquals(3, index.size());
+        index.close();
+
+        index = MappedCollectionIndex.openReadOnly(file);
+        assertEquals(3, index.size());
+        assertEquals(new LedgerEntry("1", "c"), index.get("site", "article"));
+        assertEquals(new LedgerEntry("2", "b"), index.get("site", "ärticle\n2"));
+        assertEquals(new LedgerEntry("3", ""), index.get("site", ""));
+        assertNull(index.get("site", "other"));
+        assertNull(index.get("site2", "article"));
+        index.close();
+    }
+
+    @Test
+    public void testGrows() throws Exception {
+        File file = new File(folder.getRoot(), "index");
+        MappedCollectionIndex index = MappedCollectionIndex.open(file, 10);
+        for (int i = 0; i < 5000; i++) {
+            index.put("site" + i % 3, "article" + i, new LedgerEntry(String.valueOf(i), "checksum" + i));
+        }
+        assertEquals(5000, index.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(String.valueOf(i), index.get("site" + i % 3, "article" + i).getCollectionId());
+        }
+        index.close();
+
+        index = MappedCollectionIndex.open(file);
+        index.put("site0", "article0", new LedgerEntry("0", "changed"));
+        assertEquals("changed", index.get("site0", "article0").getChecksum());
+        assertEquals("checksum4998", index.get("site0", "article4998").getChecksum());
+        index.close();
+    }
+
+    @Test
+    public void testReadOnly() throws Exception {
+        File file = new File(folder.getRoot(), "index");
+        MappedCollectionIndex.open(file).close();
+        MappedCollectionIndex index = MappedCollectionIndex.openReadOnly(file);
+        try {
+            index.put("site", "article", new LedgerEntry("1", "a"));
+            assertNull(index.get("site", "article"));
+            assertEquals(0, index.size());
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws Exception {
+        File file = folder.newFile("other");
+        Files.write(new byte[128], file);
+        MappedCollectionIndex.openReadOnly(file);
+    }
+}
@@ -2,8 +2,12 @@ package com.livefyre.model;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.TimeZone;
 
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -15,11 +19,29 @@ import com.livefyre.config.UnitTest;
 public class CursorDataTest extends PojoTest<CursorData> {
     @Test
     public void testSetDate() {
+        DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
         CursorData data = new CursorData(null, null, new Date());
         Date testDate = new Date();
         
         data.setCursorTime(testDate);
         assertNotNull(data.getCursorTime());
-        assertEquals(CursorData.DATE_FORMAT.format(testDate), data.getCursorTime());
+        assertEquals(format.format(testDate), data.getCursorTime());
+        assertEquals(Long.valueOf(testDate.getTime()), data.getCursorTimeMillis());
+    }
+    
+    @Test
+    public void testSetCursorTimeString() {
+        CursorData data = new CursorData(null, null, null);
+        assertNull(data.getCursorTime());
+        assertNull(data.getCursorTimeMillis());
+        
+        data.setCursorTime("2015-06-02T18:04:05.123Z");
+        assertEquals("2015-06-02T18:04:05.123Z", data.getCursorTime());
+        assertEquals(Long.valueOf(1433268245123L), data.getCursorTimeMillis());
+        
+        data.setCursorTime("not a time");
+        assertEquals("not a time", data.getCursorTime());
+        assertNull(data.getCursorTimeMillis());
     }
 }
@@ -0,0 +1,76 @@
+package com.livefyre.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.livefyre.config.UnitTest;
+
+@Category(UnitTest.class)
+public class UrnTest {
+    private static final String NETWORK = "test.fyre.co";
+
+    @Test
+    public void testBuild() {
+        Urn network = Urn.network(NETWORK);
+        assertEquals("urn:livefyre:test.fyre.co", network.toString());
+        assertEquals("urn:livefyre:test.fyre.co:user=bob", network.user("bob").toString());
+
+        Urn collection = network.site("1").collection("2");
+        assertEquals("urn:livefyre:test.fyre.co:site=1:collection=2", collection.toString());
+        assertEquals(NETWORK, collection.getNetwork());
+        assertEquals("1", collection.getSite());
+        assertEquals("2", collection.getCollection());
+        assertNull(collection.getTopic());
+
+        Urn topic = collection.topic("a:b");
+        assertEquals("urn:livefyre:test.fyre.co:site=1:collection=2:topic=a:b", topic.toString());
+        assertEquals("a:b", topic.getTopic());
+        assertEquals("2", topic.getCollection());
+        assertTrue(topic.isTopic());
+        assertFalse(topic.isNetworkTopic());
+        assertTrue(network.topic("t").isNetworkTopic());
+        assertFalse(network.site("1").topic("t").isNetworkTopic());
+    }
+
+    @Test
+    public void testCanonical() {
+        Urn topic = Urn.network(NETWORK).site("1").topic("t");
+        assertSame(topic, Urn.network(NETWORK).site("1").topic("t"));
+        assertSame(Urn.network(NETWORK), topic.getParent().getParent());
+
+        String urn = new String("urn:livefyre:test.fyre.co:site=1:topic=t");
+        assertSame(topic, Urn.parse(urn));
+        assertSame(topic.toString(), Urn.canonicalize(urn));
+        assertEquals("not an urn", Urn.canonicalize("not an urn"));
+        assertEquals("urn:livefyre:test.fyre.co:bad", Urn.canonicalize("urn:livefyre:test.fyre.co:bad"));
+    }
+
+    @Test
+    public void testParse() {
+        Urn user = Urn.parse("urn:livefyre:test.fyre.co:user=bob");
+        assertEquals("bob", user.getUser());
+        assertEquals(NETWORK, user.getNetwork());
+
+        Urn topic = Urn.parse("urn:livefyre:test.fyre.co:topic=x=y:z");
+        assertEquals("x=y:z", topic.getTopic());
+        assertTrue(topic.isNetworkTopic());
+        assertEquals(Urn.network(NETWORK).topic("x=y:z"), topic);
+
+        String[] invalid = { "urn:other:test.fyre.co", "urn:livefyre:", "urn:livefyre:test.fyre.co:site",
+                "urn:livefyre:test.fyre.co:foo=1", "urn:livefyre:test.fyre.co:collection=1",
+                "urn:livefyre:test.fyre.co:user=a:topic=b" };
+        for (String urn : invalid) {
+            try {
+                Urn.parse(urn);
+                fail(urn + " should not parse");
+            } catch (IllegalArgumentException e) {}
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.livefyre.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.livefyre.config.UnitTest;
+import com.livefyre.dto.Subscription;
+import com.livefyre.dto.Topic;
+import com.livefyre.factory.GsonFactory;
+import com.livefyre.type.SubscriptionType;
+
+@Category(UnitTest.class)
+public class SnapshotReaderTest {
+    private static final String NETWORK = "urn:livefyre:test.fyre.co";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testTopics() throws Exception {
+        List<Topic> topics = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            topics.add(new Topic(NETWORK + ":site=" + (i % 3) + ":topic=" + i, "label " + i, 1400000000 + i, 1400000000 + 2 * i));
+        }
+        topics.add(new Topic(NETWORK + ":topic=a=b:c", "ünïcode", null, null));
+        topics.add(new Topic("not a urn", null, 5, null));
+
+        File file = folder.newFile("topics");
+        SnapshotWriter.writeTopics(topics, file);
+        List<Topic> read = SnapshotReader.readTopics(file);
+
+        assertEquals(topics.size(), read.size());
+        for (int i = 0; i < topics.size(); i++) {
+            Topic expected = topics.get(i);
+            Topic actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getLabel(), actual.getLabel());
+            assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+            assertEquals(expected.getModifiedAt(), actual.getModifiedAt());
+        }
+        assertNull(read.get(1000).getCreatedAt());
+        assertEquals("a=b:c", read.get(1000).truncatedId());
+
+        // a fraction of the JSON they replace.
+        assertTrue(file.length() < GsonFactory.getGson().toJson(topics).length() / 3);
+    }
+
+    @Test
+    public void testSubscriptions() throws Exception {
+        List<Subscription> subscriptions = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            subscriptions.add(new Subscription(NETWORK + ":topic=" + i, NETWORK + ":user=" + (i % 7),
+                    SubscriptionType.personalStream, 1400000000 - i));
+        }
+        File file = folder.newFile("subscriptions");
+        SnapshotWriter.writeSubscriptions(subscriptions, file);
+        List<Subscription> read = SnapshotReader.readSubscriptions(file);
+
+        assertEquals(100, read.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(subscriptions.get(i).getTo(), read.get(i).getTo());
+            assertEquals(subscriptions.get(i).getBy(), read.get(i).getBy());
+            assertEquals("personalStream", read.get(i).getType());
+            assertEquals(subscriptions.get(i).getCreatedAt(), read.get(i).getCreatedAt());
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        File file = folder.newFile("empty");
+        SnapshotWriter.writeTopics(Collections.<Topic>emptyList(), file);
+        assertTrue(SnapshotReader.readTopics(file).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testChecksKind() throws Exception {
+        File file = folder.newFile("topics");
+        SnapshotWriter.writeTopics(Collections.<Topic>emptyList(), file);
+        SnapshotReader.readSubscriptions(file);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBounds() throws Exception {
+        File file = folder.newFile("topics");
+        SnapshotWriter.writeTopics(Lists.newArrayList(new Topic(NETWORK + ":topic=1", "one", 1, 1)), file);
+        SnapshotReader.readTopics(file).get(1);
+    }
+}
@@ -0,0 +1,71 @@
+package com.livefyre.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.livefyre.config.UnitTest;
+import com.livefyre.dto.Topic;
+import com.livefyre.model.CollectionData;
+import com.livefyre.type.CollectionType;
+
+@Category(UnitTest.class)
+public class CollectionJsonWriterTest {
+    private static final Gson GSON = new Gson();
+    private static final String TRICKY = "<a href='x'>&amp;=\"\\\u0000\u001f\t\b\n\r\f\u007f \u00e9 \u20ac \u2028 \u2029 \ud83d\ude00 \ud83d";
+
+    @Test
+    public void testMatchesGson() {
+        CollectionData data = new CollectionData(CollectionType.COMMENTS, "title", "articleId", "http://livefyre.com");
+        assertMatches(data, null);
+        assertMatches(data, "urn:livefyre:test.fyre.co");
+
+        data.setTags("tags").setExtensions("{\"a\": 1}").setTitle(TRICKY);
+        assertMatches(data, null);
+
+        data.setTopics(Lists.newArrayList(new Topic("id", TRICKY, -5, Integer.MAX_VALUE),
+                new Topic("id2", null, Integer.MIN_VALUE, 0), null));
+        data.setArticleId(null);
+        assertMatches(data, "urn:livefyre:test.fyre.co:site=1");
+
+        data.setTags(" ").setExtensions("").setTopics(Lists.<Topic>newArrayList());
+        assertMatches(data, null);
+    }
+
+    @Test
+    public void testReused() {
+        CollectionData data = new CollectionData(CollectionType.BLOG, "title", "articleId", "http://livefyre.com");
+        CollectionJsonWriter writer = CollectionJsonWriter.get();
+        assertSame(writer, CollectionJsonWriter.get());
+
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            title.append("\u20ac<");
+        }
+        data.setTitle(title.toString());
+        assertMatches(data, null);
+        data.setTitle("short");
+        assertMatches(data, null);
+    }
+
+    private static void assertMatches(CollectionData data, String iss) {
+        Map<String, Object> map = data.asMap();
+        if (iss != null) {
+            map.put("iss", iss);
+        }
+        CollectionJsonWriter writer = CollectionJsonWriter.get().write(data, iss);
+        byte[] expected = GSON.toJson(map).getBytes(Charset.forName("UTF-8"));
+        assertEquals(new String(expected, Charset.forName("UTF-8")), writer.toString());
+        assertEquals(expected.length, writer.getLength());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], writer.getBuffer()[i]);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.livefyre.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.livefyre.config.LfTest;
+import com.livefyre.config.UnitTest;
+
+@Category(UnitTest.class)
+public class Iso8601Test extends LfTest {
+    @Test
+    public void testMatchesSimpleDateFormat() throws Exception {
+        DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Random random = new Random(42);
+        long[] fixed = {0L, -1L, 951782400000L, 4107542399999L, 1433268245123L, -2208988800000L};
+        for (long millis : fixed) {
+            assertEquals(format.format(new Date(millis)), Iso8601.format(millis));
+            assertEquals(millis, Iso8601.parse(Iso8601.format(millis)));
+        }
+        for (int i = 0; i < 10000; i++) {
+            long millis = (long) (random.nextDouble() * 4102444800000L * 2) - 2208988800000L;
+            String s = Iso8601.format(millis);
+            assertEquals(format.format(new Date(millis)), s);
+            assertEquals(millis, Iso8601.parse(s));
+        }
+    }
+
+    @Test
+    public void testParseVariants() {
+        assertEquals(1433268245000L, Iso8601.parse("2015-06-02T18:04:05Z"));
+        assertEquals(1433268245100L, Iso8601.parse("2015-06-02T18:04:05.1Z"));
+        assertEquals(1433268245123L, Iso8601.parse("2015-06-02T18:04:05.123456Z"));
+        for (String bad : new String[] {"", "2015-06-02", "2015-06-02T18:04:05.Z", "2015-13-02T18:04:05Z", "2015-06-02T18:04:05+01:00"}) {
+            try {
+                Iso8601.parse(bad);
+                fail(bad + " is not a timestamp");
+            } catch (IllegalArgumentException e) {}
+        }
+    }
+}
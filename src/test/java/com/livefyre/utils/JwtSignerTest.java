@@ -0,0 +1,65 @@
+package com.livefyre.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.keys.HmacKey;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.UnitTest;
+import com.livefyre.dto.Topic;
+
+@Category(UnitTest.class)
+public class JwtSignerTest extends LfTest {
+    @Test
+    public void testMatchesJose4j() throws Exception {
+        Map<String, Object> claims = ImmutableMap.<String, Object>of(
+            "domain", "test.fyre.co",
+            "user_id", "user",
+            "display_name", "süper <user> &   😀 \ud800",
+            "expires", 1432684800L);
+        Map<String, Object> topics = ImmutableMap.<String, Object>of(
+            "articleId", "id",
+            "topics", Lists.newArrayList(new Topic("urn:livefyre:test.fyre.co:topic=1", "one", null, null)),
+            "iss", "urn:livefyre:test.fyre.co");
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            longValue.append("éa");
+        }
+        Map<String, Object> large = ImmutableMap.<String, Object>of("title", longValue.toString());
+
+        for (String key : Arrays.asList(NETWORK_KEY, "short", "", "a key that is well over thirty-two bytes long")) {
+            for (int n = 0; n < 3; n++) {
+                assertEquals(jose4j(claims, key), JwtSigner.forKey(key).sign(claims));
+                assertEquals(jose4j(topics, key), JwtSigner.forKey(key).sign(topics));
+                assertEquals(jose4j(large, key), JwtSigner.forKey(key).sign(large));
+                byte[] json = new Gson().toJson(topics).getBytes("UTF-8");
+                assertEquals(jose4j(topics, key), JwtSigner.forKey(key).sign(json, json.length));
+            }
+        }
+    }
+
+    @Test
+    public void testSignerPerKey() {
+        assertSame(JwtSigner.forKey(NETWORK_KEY), JwtSigner.forKey(NETWORK_KEY));
+    }
+
+    private String jose4j(Map<String, Object> claims, String key) throws Exception {
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload(new Gson().toJson(claims));
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
+        jws.setHeader("typ", "JWT");
+        jws.setKey(new HmacKey(Arrays.copyOf(key.getBytes(), 32)));
+        return jws.getCompactSerialization();
+    }
+}
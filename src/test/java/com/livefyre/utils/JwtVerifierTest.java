@@ -0,0 +1,90 @@
+package com.livefyre.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.keys.HmacKey;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonObject;
+import com.livefyre.config.LfTest;
+import com.livefyre.config.UnitTest;
+import com.livefyre.exceptions.TokenException;
+
+@Category(UnitTest.class)
+public class JwtVerifierTest extends LfTest {
+    private static final Map<String, Object> CLAIMS = ImmutableMap.<String, Object>of(
+        "domain", "test.fyre.co",
+        "user_id", "user",
+        "display_name", "superuser",
+        "expires", 4102444800L);
+
+    @Test
+    public void testVerify() {
+        String token = LivefyreUtil.serializeAndSign(CLAIMS, NETWORK_KEY);
+        for (int i = 0; i < 2; i++) {
+            TokenClaims claims = JwtVerifier.forKey(NETWORK_KEY).verify(token);
+            assertEquals("test.fyre.co", claims.getDomain());
+            assertEquals("user", claims.getUserId());
+            assertEquals("superuser", claims.getDisplayName());
+            assertEquals(Long.valueOf(4102444800L), claims.getExpires());
+        }
+        
+        JsonObject json = JwtVerifier.forKey(NETWORK_KEY).decode(token);
+        json.addProperty("user_id", "changed");
+        assertEquals("user", JwtVerifier.forKey(NETWORK_KEY).decode(token).get("user_id").getAsString());
+    }
+
+    @Test
+    public void testRejectsTampered() {
+        String token = LivefyreUtil.serializeAndSign(CLAIMS, NETWORK_KEY);
+        JwtVerifier.forKey(NETWORK_KEY).verify(token);
+        
+        String other = LivefyreUtil.serializeAndSign(ImmutableMap.<String, Object>of("user_id", "admin"), NETWORK_KEY);
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + other.split("\\.")[1] + "." + parts[2];
+        try {
+            JwtVerifier.forKey(NETWORK_KEY).verify(forged);
+            fail("payload does not match signature");
+        } catch (TokenException e) {}
+        try {
+            JwtVerifier.forKey(NETWORK_KEY + "other").verify(token);
+            fail("signed with another key");
+        } catch (TokenException e) {}
+        try {
+            JwtVerifier.forKey(NETWORK_KEY).verify("not.a.token");
+            fail("malformed token");
+        } catch (TokenException e) {}
+    }
+
+    @Test
+    public void testExpiredStillVerifies() {
+        String token = LivefyreUtil.serializeAndSign(ImmutableMap.<String, Object>of("user_id", "user", "expires", 100L), NETWORK_KEY);
+        TokenClaims claims = JwtVerifier.forKey(NETWORK_KEY).verify(token);
+        assertTrue(claims.isExpired(System.currentTimeMillis() / 1000L));
+        assertNull(claims.getDomain());
+    }
+
+    @Test
+    public void testForeignHeader() throws Exception {
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload("{\"user_id\":\"user\",\"domain\":\"test.fyre.co\"}");
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
+        jws.setKeyIdHeaderValue("kid");
+        jws.setKey(new HmacKey(Arrays.copyOf(NETWORK_KEY.getBytes(), 32)));
+        String token = jws.getCompactSerialization();
+        
+        TokenClaims claims = JwtVerifier.forKey(NETWORK_KEY).verify(token);
+        assertEquals("user", claims.getUserId());
+        assertEquals("test.fyre.co", claims.getDomain());
+    }
+}
@@ -3,6 +3,7 @@ package com.livefyre.utils;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Map;
@@ -12,8 +13,12 @@ import org.junit.experimental.categories.Category;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.JsonObject;
+import com.livefyre.Livefyre;
 import com.livefyre.config.LfTest;
 import com.livefyre.config.UnitTest;
+import com.livefyre.core.LfCore;
+import com.livefyre.core.Network;
+import com.livefyre.dto.Topic;
 
 public class LivefyreUtilTest extends LfTest {
     private static final String JSON_STRING = "{\"test\":\"super\"}";
@@ -34,6 +39,22 @@ public class LivefyreUtilTest extends LfTest {
         assertEquals(JSON_STRING, json);
     }
     
+    @Test
+    @Category(UnitTest.class)
+    public void testUrnFromCore() {
+        Network network = Livefyre.getNetwork("test.fyre.co", "key");
+        assertSame(network.urn(), LivefyreUtil.getUrnFromCore(network));
+
+        // implementations outside the library only have to provide getUrn().
+        LfCore custom = new LfCore() {
+            public String getUrn() {
+                return "urn:livefyre:test.fyre.co:site=1";
+            }
+        };
+        assertSame(network.urn().site("1"), LivefyreUtil.getUrnFromCore(custom));
+        assertEquals("urn:livefyre:test.fyre.co:site=1:topic=t", Topic.generateUrn(custom, "t"));
+    }
+    
     @Test
     @Category(UnitTest.class)
     public void testCollectionUrlChecker() {
@@ -0,0 +1,48 @@
+package com.livefyre.validator;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.livefyre.config.LfTest;
+import com.livefyre.config.UnitTest;
+import com.livefyre.exceptions.LivefyreException;
+import com.livefyre.model.NetworkData;
+
+@Category(UnitTest.class)
+public class ReflectiveValidatorTest extends LfTest {
+    @Test
+    public void testRegisteredValidator() {
+        NetworkData data = new NetworkData(NETWORK_NAME, NETWORK_KEY);
+        assertSame(data, ReflectiveValidator.validate(data));
+        try {
+            ReflectiveValidator.validate(new NetworkData("bad-network.com", NETWORK_KEY));
+            fail("name must end in fyre.co");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void testCustomRegistration() {
+        ReflectiveValidator.register(StringBuilder.class, new Validator<CharSequence>() {
+            public String validate(CharSequence data) {
+                return data.length() == 0 ? "empty" : null;
+            }
+        });
+        StringBuilder ok = new StringBuilder("ok");
+        assertSame(ok, ReflectiveValidator.validate(ok));
+        try {
+            ReflectiveValidator.validate(new StringBuilder());
+            fail("empty builders are not allowed");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void testMissingValidator() {
+        try {
+            ReflectiveValidator.validate(Integer.valueOf(1));
+            fail("there is no IntegerValidator");
+        } catch (LivefyreException e) {}
+    }
+}